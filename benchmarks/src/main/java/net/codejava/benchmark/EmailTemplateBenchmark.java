@@ -0,0 +1,34 @@
+package net.codejava.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.codejava.helper.EmailTemplate;
+
+// The confirmation email body built after every vote
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EmailTemplateBenchmark {
+
+    private final EmailTemplate emailTemplate = new EmailTemplate();
+
+    @Benchmark
+    public String getTemplate() {
+        return emailTemplate.getTemplate("Thank you for voting",
+                "Your vote has been recorded with block hash 9f86d081884c7d659a2feaa0c55ad015",
+                "Vote recorded");
+    }
+}
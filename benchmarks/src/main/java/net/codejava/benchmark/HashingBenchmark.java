@@ -0,0 +1,54 @@
+package net.codejava.benchmark;
+
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.codejava.helper.SHA256;
+import net.codejava.model.Block;
+
+// Block hashing as done once per vote, and the older SHA256 helper
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HashingBenchmark {
+
+    private static final String PREV_HASH = "9f86d081884c7d659a2feaa0c55ad015a3bf4f1b2b0b822cd15d6c15b0f00a08";
+
+    private String[] data;
+    private Block block;
+
+    @Setup
+    public void setup() {
+        data = new String[] { "123456789012", "Jane", "Independent" };
+        block = new Block(data, PREV_HASH);
+    }
+
+    @Benchmark
+    public String blockCalculateHash() {
+        return block.calculateHash();
+    }
+
+    @Benchmark
+    public Block newBlock() {
+        return new Block(data, PREV_HASH);
+    }
+
+    @Benchmark
+    public String sha256GetSha() throws NoSuchAlgorithmException {
+        return SHA256.getSHA(data, PREV_HASH);
+    }
+}
@@ -0,0 +1,53 @@
+package net.codejava.benchmark;
+
+import org.bson.types.ObjectId;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import com.mongodb.client.MongoClients;
+import com.mongodb.client.result.DeleteResult;
+import com.mongodb.client.result.UpdateResult;
+
+import net.codejava.model.Votedata;
+
+/**
+ * Accepts the writes made on the vote path without a server. Every update
+ * matches one document and every existence check passes, so candidate
+ * lookups always succeed. The client is never used; it only satisfies
+ * MongoTemplate's constructor.
+ */
+class InMemoryMongoTemplate extends MongoTemplate {
+
+    InMemoryMongoTemplate() {
+        super(MongoClients.create("mongodb://localhost:27017"), "benchmark");
+    }
+
+    @Override
+    public <T> T insert(T objectToSave) {
+        if (objectToSave instanceof Votedata && ((Votedata) objectToSave).getId() == null) {
+            ((Votedata) objectToSave).setId(ObjectId.get().toHexString());
+        }
+        return objectToSave;
+    }
+
+    @Override
+    public <T> T save(T objectToSave) {
+        return objectToSave;
+    }
+
+    @Override
+    public boolean exists(Query query, Class<?> entityClass) {
+        return true;
+    }
+
+    @Override
+    public UpdateResult updateFirst(Query query, Update update, Class<?> entityClass) {
+        return UpdateResult.acknowledged(1, 1L, null);
+    }
+
+    @Override
+    public DeleteResult remove(Query query, Class<?> entityClass) {
+        return DeleteResult.acknowledged(1);
+    }
+}
@@ -0,0 +1,37 @@
+package net.codejava.benchmark;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.codejava.config.LocalDateConverter;
+
+// Form date parsing; the later formats pay for the earlier failed parses
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LocalDateConverterBenchmark {
+
+    @Param({ "2024-03-15", "15/03/2024", "03/15/2024", "2024/03/15" })
+    public String date;
+
+    private final LocalDateConverter converter = new LocalDateConverter();
+
+    @Benchmark
+    public LocalDate convert() {
+        return converter.convert(date);
+    }
+}
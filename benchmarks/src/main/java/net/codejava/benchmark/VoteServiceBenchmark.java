@@ -0,0 +1,170 @@
+package net.codejava.benchmark;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.reflect.Field;
+import java.lang.reflect.Proxy;
+import java.math.BigInteger;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.util.ReflectionUtils;
+import org.web3j.crypto.Credentials;
+import org.web3j.crypto.ECKeyPair;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.http.HttpService;
+import org.web3j.tx.ReadonlyTransactionManager;
+
+import net.codejava.repository.VoteRepo;
+import net.codejava.service.ChainHeadSequencer;
+import net.codejava.service.ElectionMerkleService;
+import net.codejava.service.ProofOfWorkService;
+import net.codejava.service.ResultsProjection;
+import net.codejava.service.TallyVersion;
+import net.codejava.service.VoteBatchAnchorer;
+import net.codejava.service.VoteCommitter;
+import net.codejava.service.VoteService;
+import net.codejava.service.VoterRegistry;
+import net.codejava.smartcontract.ContractStateCache;
+import net.codejava.smartcontract.VotingContractService;
+
+/**
+ * The whole isSuccessfull path: registry check, chain link allocation, the
+ * Mongo commit and the registry update. Mongo is replaced by
+ * InMemoryMongoTemplate and the chain by a ContractStateCache that reports
+ * every address as not having voted, so no server or RPC node is needed.
+ *
+ * The services are wired by hand the way Spring would inject them; their
+ * @PostConstruct hooks are skipped because they read from Mongo and start
+ * background threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class VoteServiceBenchmark {
+
+    private static final String[] PARTIES = { "Independent", "Green", "Labour", "Liberal" };
+
+    private final AtomicLong voters = new AtomicLong();
+
+    private VoteService voteService;
+    private VoterRegistry voterRegistry;
+    private ElectionMerkleService electionMerkleService;
+    private Web3j web3j;
+    private PrintStream stdout;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        // The vote path logs every ballot; keep that out of the forked VM's output
+        stdout = System.out;
+        System.setOut(new PrintStream(new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+        }));
+
+        InMemoryMongoTemplate mongoTemplate = new InMemoryMongoTemplate();
+        VoteRepo voteRepo = emptyRepository(VoteRepo.class);
+
+        voterRegistry = new VoterRegistry();
+        inject(voterRegistry, "expectedVoters", 10_000_000L);
+        inject(voterRegistry, "falsePositiveRate", 0.001);
+        inject(voterRegistry, "mongoTemplate", mongoTemplate);
+
+        // Proof-of-work stays off, as it is by default
+        ProofOfWorkService proofOfWork = new ProofOfWorkService();
+
+        ChainHeadSequencer chainHeadSequencer = new ChainHeadSequencer();
+        inject(chainHeadSequencer, "proofOfWork", proofOfWork);
+        inject(chainHeadSequencer, "mongoTemplate", mongoTemplate);
+        inject(chainHeadSequencer, "voterepo", voteRepo);
+        chainHeadSequencer.reset();
+
+        electionMerkleService = new ElectionMerkleService();
+        inject(electionMerkleService, "chainHeadSequencer", chainHeadSequencer);
+
+        VoteCommitter voteCommitter = new VoteCommitter();
+        inject(voteCommitter, "mongoTemplate", mongoTemplate);
+
+        VoteBatchAnchorer voteBatchAnchorer = new VoteBatchAnchorer();
+        inject(voteBatchAnchorer, "mode", "single");
+
+        // Only reached on a Bloom filter false positive; answered from the cache
+        ContractStateCache stateCache = new ContractStateCache();
+        inject(stateCache, "syncedBlock", 0L);
+        inject(stateCache, "startupHead", 0L);
+        web3j = Web3j.build(new HttpService("http://localhost:8545"));
+        Credentials credentials = Credentials.create(ECKeyPair.create(BigInteger.ONE));
+        VotingContractService votingContractService = new VotingContractService(web3j, credentials,
+                new ReadonlyTransactionManager(web3j, credentials.getAddress()), null, stateCache,
+                "0x0000000000000000000000000000000000000001");
+
+        voteService = new VoteService();
+        inject(voteService, "mongoTemplate", mongoTemplate);
+        inject(voteService, "voterRegistry", voterRegistry);
+        inject(voteService, "chainHeadSequencer", chainHeadSequencer);
+        inject(voteService, "voteCommitter", voteCommitter);
+        inject(voteService, "voteBatchAnchorer", voteBatchAnchorer);
+        inject(voteService, "votingContractService", votingContractService);
+        inject(voteService, "proofOfWork", proofOfWork);
+        inject(voteService, "electionMerkleService", electionMerkleService);
+        inject(voteService, "resultsProjection", new ResultsProjection());
+        inject(voteService, "tallyVersion", new TallyVersion());
+        voteService.setVotingActive(true);
+    }
+
+    @Setup(Level.Iteration)
+    public void clearRegistry() {
+        // Keeps the Bloom filter at its design load, and the Merkle tree's
+        // memory in check, across iterations
+        voterRegistry.reset();
+        electionMerkleService.reset();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        System.setOut(stdout);
+        web3j.shutdown();
+    }
+
+    @Benchmark
+    public boolean isSuccessfull() throws Exception {
+        long voter = voters.incrementAndGet();
+        return voteService.isSuccessfull(PARTIES[(int) (voter & 3)], String.format("%012d", voter), "Voter" + voter);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public boolean isSuccessfullContended() throws Exception {
+        return isSuccessfull();
+    }
+
+    private static void inject(Object target, String name, Object value) {
+        Field field = ReflectionUtils.findField(target.getClass(), name);
+        ReflectionUtils.makeAccessible(field);
+        ReflectionUtils.setField(field, target, value);
+    }
+
+    // Repository whose finders find nothing and whose counts are zero
+    @SuppressWarnings("unchecked")
+    private static <T> T emptyRepository(Class<T> type) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type },
+                (proxy, method, args) -> method.getReturnType() == long.class ? 0L : null);
+    }
+}
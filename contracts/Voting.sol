@@ -23,12 +23,16 @@ contract Voting {
     
     // Track who has voted
     mapping(address => bool) public voters;
+
+    // Merkle roots of off-chain vote batches, mapped to the number of votes they cover
+    mapping(bytes32 => uint256) public anchoredBatches;
     
     // Events
     event CandidateAdded(uint256 indexed candidateId, string name, string party);
     event CandidateRemoved(uint256 indexed candidateId);
     event VotedEvent(uint256 indexed candidateId, address voter);
     event OwnershipTransferred(address indexed previousOwner, address indexed newOwner);
+    event BatchAnchored(bytes32 indexed merkleRoot, uint256 voteCount);
 
     // Modifier to restrict access to owner
     modifier onlyOwner() {
@@ -93,6 +97,15 @@ contract Voting {
         emit VotedEvent(_candidateId, msg.sender);
     }
     
+    // Anchor the Merkle root of a batch of votes recorded off-chain (only owner)
+    function anchorBatch(bytes32 _merkleRoot, uint256 _voteCount) public onlyOwner {
+        require(_voteCount > 0, "Empty batch");
+        require(anchoredBatches[_merkleRoot] == 0, "Batch already anchored");
+
+        anchoredBatches[_merkleRoot] = _voteCount;
+        emit BatchAnchored(_merkleRoot, _voteCount);
+    }
+    
     // Get candidate details
     function getCandidate(uint256 _candidateId) public view returns (
         uint256 id,
@@ -15,11 +15,13 @@ async function main() {
   // Deploy the contract
   const voting = await Voting.deploy();
   await voting.deployed();
+  const receipt = await voting.deployTransaction.wait();
   
   console.log("\n=== Deployment Successful ===");
   console.log(`Contract Address: ${voting.address}`);
   console.log(`Owner: ${await voting.owner()}`);
   console.log(`Transaction Hash: ${voting.deployTransaction.hash}`);
+  console.log(`Block Number: ${receipt.blockNumber}`);
   
   // Save deployment info to a file
   const deploymentInfo = {
@@ -27,7 +29,8 @@ async function main() {
     contract: {
       address: voting.address,
       abi: JSON.parse(voting.interface.format('json')),
-      deployTransaction: voting.deployTransaction.hash
+      deployTransaction: voting.deployTransaction.hash,
+      blockNumber: receipt.blockNumber
     },
     timestamp: new Date().toISOString()
   };
@@ -42,7 +45,7 @@ async function main() {
   
   console.log(`\nDeployment info saved to: ${deploymentFile}`);
   console.log("\nNext steps:");
-  console.log(`1. Set CONTRACT_ADDRESS=${voting.address} in your .env file`);
+  console.log(`1. Set CONTRACT_ADDRESS=${voting.address} and CONTRACT_DEPLOY_TX=${voting.deployTransaction.hash} in your .env file`);
   console.log("2. Update candidates in candidates.json if needed");
   console.log("3. Run: npx hardhat run scripts/manage-candidates.js --network fuji");
 }
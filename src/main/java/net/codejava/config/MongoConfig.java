@@ -11,6 +11,7 @@ import net.codejava.model.User;
 import net.codejava.model.Candidate;
 import net.codejava.repository.UserRepo;
 import net.codejava.repository.CandidateRepo;
+import net.codejava.service.ResultsProjection;
 
 import java.sql.Date;
 
@@ -26,6 +27,9 @@ public class MongoConfig {
     @Autowired
     private PasswordEncoder passwordEncoder;
 
+    @Autowired
+    private ResultsProjection resultsProjection;
+
     @Bean
     public CommandLineRunner initData() {
         return args -> {
@@ -66,6 +70,7 @@ public class MongoConfig {
                     candidateRepo.save(candidate2);
                     System.out.println("Candidate Rahul Gandhi created successfully");
                 }
+                resultsProjection.candidatesChanged();
             } catch (Exception e) {
                 System.out.println("Warning: Could not initialize sample data due to MongoDB connection issues: " + e.getMessage());
                 System.out.println("The application will continue to run, but you may need to manually create users and candidates.");
@@ -0,0 +1,43 @@
+package net.codejava.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.web3j.crypto.Credentials;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.http.HttpService;
+import org.web3j.tx.TransactionManager;
+
+import net.codejava.smartcontract.NonceManager;
+import net.codejava.smartcontract.PipelinedTransactionManager;
+
+// One RPC client and one signing account shared by every blockchain service,
+// so all transactions draw their nonces from the same NonceManager
+@Configuration
+public class Web3Config {
+
+    // Avalanche Fuji testnet chainId, used for EIP-155 signatures
+    public static final long CHAIN_ID = 43113;
+
+    @Bean(destroyMethod = "shutdown")
+    public Web3j web3j(@Value("${AVALANCHE_RPC_URL}") String rpcUrl) {
+        return Web3j.build(new HttpService(rpcUrl));
+    }
+
+    @Bean
+    public Credentials credentials(@Value("${TEST_PRIVATE_KEY}") String privateKey) {
+        return Credentials.create(privateKey);
+    }
+
+    @Bean
+    public TransactionManager transactionManager(Web3j web3j, Credentials credentials, NonceManager nonceManager) {
+        return new PipelinedTransactionManager(
+            web3j,
+            credentials,
+            CHAIN_ID,
+            5,     // Attempt to retry failed transactions 5 times
+            3000,  // 3 second delay between retries
+            nonceManager
+        );
+    }
+}
@@ -2,20 +2,26 @@ package net.codejava.controller;
 
 import net.codejava.model.Election;
 import net.codejava.model.Candidate;
-import net.codejava.model.User;
-import net.codejava.model.Pending;
 import net.codejava.service.ElectionService;
 import net.codejava.service.CandidateService;
-import net.codejava.service.UserService;
+import net.codejava.service.AdminListService;
 import net.codejava.service.EmailService;
 import net.codejava.service.VoteService;
+import net.codejava.service.ChainAuditService;
+import net.codejava.service.ResultsProjection;
+import net.codejava.service.StatsService;
+import net.codejava.service.DashboardStatsService;
+import net.codejava.helper.CoalescingCache;
 import net.codejava.helper.EmailTemplate;
 import net.codejava.helper.Message;
 import java.util.Map;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
 import java.time.LocalDateTime;
@@ -33,7 +39,7 @@ public class AdminController {
     private CandidateService candidateService;
     
     @Autowired
-    private UserService userService;
+    private AdminListService adminListService;
     
     @Autowired
     private EmailService emailService;
@@ -44,6 +50,18 @@ public class AdminController {
     @Autowired
     private VoteService voteService;
     
+    @Autowired
+    private ChainAuditService chainAuditService;
+    
+    @Autowired
+    private ResultsProjection resultsProjection;
+    
+    @Autowired
+    private StatsService statsService;
+    
+    @Autowired
+    private DashboardStatsService dashboardStatsService;
+    
     // ==================== ELECTION MANAGEMENT ====================
     
     @GetMapping("/elections")
@@ -230,8 +248,28 @@ public class AdminController {
     
     @GetMapping("/voting/stats")
     @ResponseBody
-    public Map<String, Object> getVotingStats() {
-        return voteService.getVotingStatistics();
+    public ResponseEntity<Map<String, Object>> getVotingStats() {
+        // Answered with a 304 when If-None-Match still matches
+        CoalescingCache.Entry<Map<String, Object>> stats = statsService.getVotingStats();
+        return ResponseEntity.ok().cacheControl(CacheControl.noCache()).eTag(stats.getEtag()).body(stats.getValue());
+    }
+    
+    @GetMapping("/results/stream")
+    @ResponseBody
+    public SseEmitter streamResults(@RequestParam(value = "electionId", required = false) String electionId) {
+        return resultsProjection.subscribe(voteService.getResultsElectionId(electionId));
+    }
+    
+    // A POST, as the audit moves the chain's checkpoint forward
+    @PostMapping("/voting/audit")
+    @ResponseBody
+    public ResponseEntity<ChainAuditService.AuditReport> auditChain(@RequestParam(value = "full", defaultValue = "false") boolean full,
+                                                                    @RequestParam(value = "electionId", required = false) String electionId) {
+        // Auditing an unknown id would start a chain for it
+        if (electionId != null && !electionService.getElectionById(electionId).isPresent()) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(chainAuditService.audit(electionId, full));
     }
     
     // ==================== ENHANCED CANDIDATE MANAGEMENT ====================
@@ -271,13 +309,21 @@ public class AdminController {
     
     // ==================== ENHANCED USER MANAGEMENT ====================
     
+    // Both lists are paged by key; after and pendingAfter continue each one separately
     @GetMapping("/users/advanced")
-    public String advancedUserManagement(Model model) {
-        List<User> users = userService.getAllUsers();
-        List<Pending> pendingUsers = userService.getAllPendingUsers();
+    public String advancedUserManagement(@RequestParam(value = "q", required = false) String filter,
+                                         @RequestParam(value = "after", required = false) String after,
+                                         @RequestParam(value = "pendingAfter", required = false) String pendingAfter,
+                                         @RequestParam(value = "size", required = false) Integer size,
+                                         Model model) {
+        AdminListService.ListPage<AdminListService.UserRow> users = adminListService.users(filter, after, size);
+        AdminListService.ListPage<AdminListService.PendingRow> pendingUsers =
+                adminListService.pendingUsers(filter, pendingAfter, size);
         
-        model.addAttribute("users", users);
-        model.addAttribute("pendingUsers", pendingUsers);
+        model.addAttribute("users", users.getItems());
+        model.addAttribute("pendingUsers", pendingUsers.getItems());
+        model.addAttribute("usersPage", users);
+        model.addAttribute("pendingPage", pendingUsers);
         return "admin/advanced-users.html";
     }
     
@@ -311,47 +357,7 @@ public class AdminController {
     
     @GetMapping("/dashboard/stats")
     @ResponseBody
-    public DashboardStats getDashboardStats() {
-        ElectionService.ElectionStats electionStats = electionService.getElectionStats();
-        long totalUsers = userService.getAllUsers().size();
-        long totalCandidates = candidateService.getAllCandidates().size();
-        long pendingUsers = userService.getAllPendingUsers().size();
-        
-        return new DashboardStats(
-            totalUsers, 
-            totalCandidates, 
-            pendingUsers,
-            electionStats.getTotalElections(),
-            electionStats.getActiveElections(),
-            electionStats.getCompletedElections()
-        );
-    }
-    
-    // Inner class for dashboard statistics
-    public static class DashboardStats {
-        private final long totalUsers;
-        private final long totalCandidates;
-        private final long pendingUsers;
-        private final long totalElections;
-        private final long activeElections;
-        private final long completedElections;
-        
-        public DashboardStats(long totalUsers, long totalCandidates, long pendingUsers, 
-                            long totalElections, long activeElections, long completedElections) {
-            this.totalUsers = totalUsers;
-            this.totalCandidates = totalCandidates;
-            this.pendingUsers = pendingUsers;
-            this.totalElections = totalElections;
-            this.activeElections = activeElections;
-            this.completedElections = completedElections;
-        }
-        
-        // Getters
-        public long getTotalUsers() { return totalUsers; }
-        public long getTotalCandidates() { return totalCandidates; }
-        public long getPendingUsers() { return pendingUsers; }
-        public long getTotalElections() { return totalElections; }
-        public long getActiveElections() { return activeElections; }
-        public long getCompletedElections() { return completedElections; }
+    public DashboardStatsService.DashboardStats getDashboardStats() {
+        return dashboardStatsService.getDashboardStats();
     }
 }
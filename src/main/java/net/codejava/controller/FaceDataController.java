@@ -3,8 +3,11 @@ package net.codejava.controller;
 import net.codejava.model.FaceData;
 import net.codejava.service.FaceDataService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import java.util.Base64;
 import java.util.List;
 import java.util.Optional;
 
@@ -13,6 +16,8 @@ import java.util.Optional;
 @CrossOrigin(origins = "*")
 public class FaceDataController {
     
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+    
     @Autowired
     private FaceDataService faceDataService;
     
@@ -30,11 +35,15 @@ public class FaceDataController {
     }
     
     /**
-     * Get face data by username
+     * Get face data by username: metadata only, or whole records with ?full=true
      */
     @GetMapping("/user/{username}")
-    public ResponseEntity<?> getFaceDataByUsername(@PathVariable String username) {
+    public ResponseEntity<?> getFaceDataByUsername(@PathVariable String username,
+                                                   @RequestParam(value = "full", defaultValue = "false") boolean full) {
         try {
+            if (!full) {
+                return ResponseEntity.ok(faceDataService.getFaceMetadataByUsername(username));
+            }
             List<FaceData> faceDataList = faceDataService.getFaceDataByUsername(username);
             return ResponseEntity.ok(faceDataList);
         } catch (Exception e) {
@@ -102,6 +111,35 @@ public class FaceDataController {
         }
     }
     
+    /**
+     * Get the image of one face record, decoded
+     */
+    @GetMapping("/{id}/image")
+    public ResponseEntity<?> getFaceImage(@PathVariable String id) {
+        try {
+            Optional<FaceData> faceData = faceDataService.getFaceImage(id);
+            if (!faceData.isPresent()) {
+                return ResponseEntity.notFound().build();
+            }
+            String image = faceData.get().getFaceImageBase64();
+            String contentType = "image/" + (faceData.get().getImageType() == null ? "jpeg" : faceData.get().getImageType());
+            // Images may be stored as data URLs, which carry their own type
+            if (image.startsWith("data:")) {
+                int comma = image.indexOf(',');
+                int semicolon = image.indexOf(';');
+                if (semicolon > 5 && semicolon < comma) {
+                    contentType = image.substring(5, semicolon);
+                }
+                image = image.substring(comma + 1);
+            }
+            return ResponseEntity.ok()
+                    .contentType(MediaType.parseMediaType(contentType))
+                    .body(Base64.getMimeDecoder().decode(image));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body("Error retrieving face image: " + e.getMessage());
+        }
+    }
+    
     /**
      * Update face data
      */
@@ -130,15 +168,11 @@ public class FaceDataController {
     }
     
     /**
-     * Get all face data
+     * Metadata of all face data as NDJSON, streamed from a cursor; images come from /{id}/image
      */
     @GetMapping("/all")
-    public ResponseEntity<?> getAllFaceData() {
-        try {
-            List<FaceData> allFaceData = faceDataService.getAllFaceData();
-            return ResponseEntity.ok(allFaceData);
-        } catch (Exception e) {
-            return ResponseEntity.badRequest().body("Error retrieving all face data: " + e.getMessage());
-        }
+    public ResponseEntity<StreamingResponseBody> getAllFaceData() {
+        StreamingResponseBody body = out -> faceDataService.writeMetadataNdjson(out);
+        return ResponseEntity.ok().contentType(NDJSON).body(body);
     }
 }
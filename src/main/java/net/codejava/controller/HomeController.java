@@ -5,7 +5,6 @@ import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
 import java.security.Principal;
-import java.util.List;
 import javax.servlet.http.HttpSession;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
@@ -18,7 +17,6 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import net.codejava.helper.EmailTemplate;
 import net.codejava.helper.Message;
 import net.codejava.model.User;
-import net.codejava.model.Candidate;
 import net.codejava.repository.UserRepo;
 import net.codejava.repository.VoteRepo;
 import net.codejava.service.EmailService;
@@ -26,7 +24,7 @@ import net.codejava.service.UserService;
 import net.codejava.service.VoteService;
 import net.codejava.smartcontract.VoteSmartContract;
 
-import net.codejava.service.CandidateService;
+import net.codejava.service.ResultsProjection;
 
 import org.springframework.web.bind.annotation.RequestParam;
 
@@ -62,7 +60,7 @@ public class HomeController {
 	VoteRepo voterepo;
 
 	@Autowired
-	CandidateService candidateService;
+	ResultsProjection resultsProjection;
 
 	// ---------------------------USER HOME
 	// PAGE--------------------------------------//
@@ -90,11 +88,9 @@ public class HomeController {
 
 		// Expose simple results data for users when voting has finished
 		try {
-			List<Candidate> candidates = candidateService.getAllCandidates();
-			long totalVotes = 0;
-			for (Candidate c : candidates) totalVotes += c.getVoteCount();
-			model.addAttribute("allCandidates", candidates);
-			model.addAttribute("totalVotes", totalVotes);
+			ResultsProjection.Snapshot results = resultsProjection.getSnapshot(voteservice.getResultsElectionId(null));
+			model.addAttribute("allCandidates", results.getCandidates());
+			model.addAttribute("totalVotes", results.getTotalVotes());
 			model.addAttribute("votingEnded", userservice.getUser("admin").getVotestatus().equals("2"));
 		} catch (Exception e) {
 			System.err.println("Failed to attach voting results to user home: " + e.getMessage());
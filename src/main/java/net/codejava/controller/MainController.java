@@ -13,6 +13,7 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpSession;
 import org.apache.tomcat.util.http.fileupload.FileUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
@@ -23,12 +24,13 @@ import org.springframework.web.bind.annotation.ModelAttribute;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.multipart.MultipartFile;
 
+import net.codejava.helper.CoalescingCache;
 import net.codejava.helper.EmailTemplate;
 import net.codejava.helper.FileUploadUtil;
 import net.codejava.helper.Message;
-import net.codejava.helper.SHA256;
 import net.codejava.model.Candidate;
 import net.codejava.model.Pending;
 import net.codejava.model.User;
@@ -37,7 +39,10 @@ import net.codejava.repository.CandidateRepo;
 import net.codejava.repository.PendingRepo;
 import net.codejava.repository.UserRepo;
 import net.codejava.repository.VoteRepo;
+import net.codejava.service.ChainAuditService;
+import net.codejava.service.ElectionMerkleService;
 import net.codejava.service.EmailService;
+import net.codejava.service.StatsService;
 import net.codejava.service.UserService;
 import org.springframework.web.bind.annotation.RequestBody;
 
@@ -71,6 +76,12 @@ public class MainController {
 
 	@Autowired
 	private EmailTemplate emailTemplate;
+
+	@Autowired
+	private ElectionMerkleService electionMerkleService;
+
+	@Autowired
+	private StatsService statsService;
 	// ----------------------------------------------------------------------------//
 
 	// After loging in, users will be redirected to their respective pages
@@ -311,18 +322,11 @@ public class MainController {
 	}
 
 	// API
+	// Cached per tally version; pollers revalidate with If-None-Match and get a 304 while nothing changed
 	@GetMapping("/getGraphData")
 	public ResponseEntity<List<String>> getDataForGraph() {
-		String userCount = "" + (repo.findUserCount() - 1L);
-		String pendingCount = "" + pendingRepo.findPendingCount();
-		String voteCount = "" + (voterepo.findcount() - 1);
-
-		List<String> data = new ArrayList<>();
-		data.add(userCount);
-		data.add(pendingCount);
-		data.add(voteCount);
-
-		return new ResponseEntity<List<String>>(data, HttpStatus.OK);
+		CoalescingCache.Entry<List<String>> data = statsService.getGraphData();
+		return ResponseEntity.ok().cacheControl(CacheControl.noCache()).eTag(data.getEtag()).body(data.getValue());
 	}
 
 	@GetMapping("/verify")
@@ -330,37 +334,49 @@ public class MainController {
 		return "verifyVote.html";
 	}
 
+	// Inclusion proof of a vote's block hash in its election's Merkle tree, checkable client-side
+	@GetMapping("/verify/proof")
+	@ResponseBody
+	public ResponseEntity<ElectionMerkleService.Proof> voteProof(@RequestParam("hash") String hash) {
+		ElectionMerkleService.Proof proof = electionMerkleService.getProof(hash);
+		if (proof == null) {
+			return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+		}
+		return new ResponseEntity<>(proof, HttpStatus.OK);
+	}
+
 	@PostMapping("verify/verifyvote")
 	public String verifyVote(@RequestParam("currhash") String currhash) throws NoSuchAlgorithmException{
 
+		// Accept either the block hash or the on-chain transaction hash, both indexed
 		Votedata vote=voterepo.findByCurrhash(currhash);
+		if (vote == null) {
+			vote = voterepo.findByTxhash(currhash);
+		}
+		// A void block fills a chain position but is no one's vote
+		if (vote == null || vote.isVoided()) {
+			System.err.println("[VERIFY] No vote found for hash " + currhash);
+			return "redirect:/index";
+		}
 		
 		String adhaar = vote.getUsername();
-		String previousBlockHash=vote.getPrevhash();
 		User user= repo.findByUsername(adhaar);
-		String partyname="";
 
 		String name=user.getFirstname();
 		String email=user.getEmail();
 
-		List<String> party=new ArrayList<>();
-		
-		List<Candidate> candidates=candidaterepo.findAll();
-        
-        for (Candidate c : candidates) {
-            party.add(c.getParty());
-        }
-
-			for(String i:party){
-                String[] transaction = {adhaar,name,i};
-                String tempHash= SHA256.getSHA(transaction,previousBlockHash);
-
-                System.out.println(">>>>>>>>>>>Temp Hash Generated>>>>>>>>>>>>>>"+tempHash);
-                if(tempHash.equals(currhash)){
-					partyname=i;
-                    break;
-                }
-            }
+		// The vote stores its candidate, so one digest confirms the block wasn't altered
+		String tempHash = ChainAuditService.recomputeHash(vote);
+		if (tempHash == null) {
+			// Rows written before block fields were stored lack the timestamp and
+			// nonce their hash was built from, so no digest can ever match them
+			String f = "Hi  " +name+ " . Your Vote confirmation is here!";
+			String s = "Your vote was recorded before votes could be verified, so it can't be checked against its block. It is still counted. Thank you";
+			String message = emailTemplate.getTemplate(f, s, "");
+			this.emailservice.sendEmail("Vote Confirmation", message, email);
+			return "redirect:/index";
+		}
+		String partyname = tempHash.equals(vote.getCurrhash()) ? vote.getCandidate() : "";
 		
 			String f = "Hi  " +name+ " . Your Vote confirmation is here!";
 			String s = "You have voted for this party. Please donot share this information. Hope you had a smooth experience. Thank you";
@@ -25,6 +25,8 @@ import net.codejava.repository.PendingRepo;
 import net.codejava.repository.UserRepo;
 import net.codejava.repository.VoteRepo;
 import net.codejava.service.VoteService;
+import net.codejava.service.ResultsProjection;
+import net.codejava.service.AdminListService;
 import net.codejava.service.CandidateService;
 import net.codejava.service.UserService;
 import net.codejava.service.EmailService;
@@ -61,6 +63,12 @@ public class UserSecurityController {
 	@Autowired
 	VoteService voteService;
 
+	@Autowired
+	ResultsProjection resultsProjection;
+
+	@Autowired
+	AdminListService adminListService;
+
 	//all users
 	// @GetMapping("/")
 	// public String getUsers(Principal principle,Model model){
@@ -78,7 +86,7 @@ public class UserSecurityController {
 
 		long totalUsers = repo.findUserCount();
 		long pendingUsers = pendingRepo.findPendingCount();
-		long votedUsers = voterepo.findcount();
+		long votedUsers = voterepo.findcount() - voterepo.countVoided();
 		
 		// Ensure we don't go below 0
 		long adjustedUserCount = Math.max(0, totalUsers);
@@ -97,13 +105,10 @@ public class UserSecurityController {
 		System.out.println(userCount+"--------------------"+pendingCount);
 		// Add voting statistics for admin dashboard
 		try {
-			List<Candidate> candidates = candidateService.getAllCandidates();
-			long totalVotes = 0;
-			for (Candidate c : candidates) {
-				totalVotes += c.getVoteCount();
-			}
-			model.addAttribute("allCandidates", candidates);
-			model.addAttribute("totalVotes", totalVotes);
+			ResultsProjection.Snapshot results = resultsProjection.getSnapshot(voteService.getResultsElectionId(null));
+			model.addAttribute("resultsElectionId", results.getElectionId());
+			model.addAttribute("allCandidates", results.getCandidates());
+			model.addAttribute("totalVotes", results.getTotalVotes());
 			model.addAttribute("votingEnded", "2".equals(userService.getUser("admin").getVotestatus()));
 		} catch (Exception e) {
 			System.err.println("Failed to load voting stats for admin page: " + e.getMessage());
@@ -113,25 +118,35 @@ public class UserSecurityController {
 
 	
 
+	// Lists are paged by key: ?after= continues after the last row of the previous page
 	@GetMapping("/users")
-	public String users(Model model){
-		List<User> users = userService.getAllUsers();
-		model.addAttribute("users", users);
+	public String users(@RequestParam(value = "q", required = false) String filter,
+			@RequestParam(value = "after", required = false) String after,
+			@RequestParam(value = "size", required = false) Integer size, Model model){
+		AdminListService.ListPage<AdminListService.UserRow> page = adminListService.users(filter, after, size);
+		model.addAttribute("users", page.getItems());
+		model.addAttribute("page", page);
 		return "databasepart.html";
 	}
 
 
 	@GetMapping("/candidatelist")
-	public String candidatelist(Model model) {
-		 List<Candidate> candidates = candidateService.getAllCandidates();
-		 model.addAttribute("allcandidates", candidates);
+	public String candidatelist(@RequestParam(value = "q", required = false) String filter,
+			@RequestParam(value = "after", required = false) String after,
+			@RequestParam(value = "size", required = false) Integer size, Model model) {
+		AdminListService.ListPage<AdminListService.CandidateRow> page = adminListService.candidates(filter, after, size);
+		model.addAttribute("allcandidates", page.getItems());
+		model.addAttribute("page", page);
 		return "candidate.html";
 	}
 
 	@GetMapping("/pendingrequest")
-	public String pending(Model model){
-		List<Pending> users = userService.getAllPendingUsers();
-		model.addAttribute("pendingUsers", users);
+	public String pending(@RequestParam(value = "q", required = false) String filter,
+			@RequestParam(value = "after", required = false) String after,
+			@RequestParam(value = "size", required = false) Integer size, Model model){
+		AdminListService.ListPage<AdminListService.PendingRow> page = adminListService.pendingUsers(filter, after, size);
+		model.addAttribute("pendingUsers", page.getItems());
+		model.addAttribute("page", page);
 		return "pendingrequest.html";
 	}
 
@@ -173,8 +188,6 @@ public class UserSecurityController {
 			file = new File(path);
 			if (file.exists()) {
 				boolean status = userService.deleteUser(username, fileName, path);
-				List<User> users = userService.getAllUsers();
-				model.addAttribute("users", users);
 				return "redirect:/admin/users";
 			}
 		} catch (Exception e) {
@@ -207,8 +220,6 @@ public class UserSecurityController {
 			file = new File(path);
 			if (file.exists()) {
 				boolean status = userService.deletePendingUser(username, fileName, path);
-				List<User> users = userService.getAllUsers();
-				model.addAttribute("users", users);
 
 				return "redirect:/admin/users";
 			}
@@ -231,8 +242,6 @@ public class UserSecurityController {
 			file = new File(path);
 			if (file.exists()) {
 				boolean status = candidateService.deleteCandidates(username, fileName, path);
-				List<Candidate> candidates = candidateService.getAllCandidates();
-				model.addAttribute("allcandidates", candidates);
 				return "redirect:/admin/candidatelist";
 			}
 		} catch (Exception e) {
@@ -269,8 +278,6 @@ public class UserSecurityController {
 			repo.save(user);
 
 			pendingRepo.deleteById(username);
-			List<Pending> users = userService.getAllPendingUsers();
-			model.addAttribute("users", users);
 
 			String f="Your Registration is Successful!";
 			String s="Your registration has been accepted. You can now login in your account using your adhar id and password used while registration. Thank you !";
@@ -308,6 +315,7 @@ public class UserSecurityController {
 		FileUploadUtil.saveFile(uploadDir, fileName, multipartFile);
 		candidate.setCandidatepic(fileName);
 		Candidate candidateTemp = candidateRepo.save(candidate);
+		resultsProjection.candidatesChanged();
 
 
 		return "redirect:/admin/candidates";
@@ -14,7 +14,9 @@ import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import java.util.*;
 
 import net.codejava.helper.EmailTemplate;
@@ -27,6 +29,7 @@ import net.codejava.service.BlockchainService;
 import net.codejava.repository.VoteRepo;
 import net.codejava.service.CandidateService;
 import net.codejava.service.EmailService;
+import net.codejava.service.ResultsProjection;
 import net.codejava.service.UserService;
 import net.codejava.service.VoteService;
 import net.codejava.smartcontract.VoteSmartContract;
@@ -54,6 +57,9 @@ public class VoteController {
     @Autowired
     private CandidateService candidateService;
 
+    @Autowired
+    private ResultsProjection resultsProjection;
+
     @Autowired
     EmailService emailservice;
 
@@ -107,7 +113,9 @@ public class VoteController {
     }
 
     @GetMapping("/votecasted/{choice}")
-    public String getParty(@PathVariable("choice") String choice, Principal principal, HttpSession session) throws NoSuchAlgorithmException, UnsupportedEncodingException {
+    public String getParty(@PathVariable("choice") String choice,
+                           @RequestParam(value = "electionId", required = false) String electionId,
+                           Principal principal, HttpSession session) throws NoSuchAlgorithmException, UnsupportedEncodingException {
         if (principal == null || principal.getName() == null) {
             session.setAttribute("status", new Message("You must be logged in to vote.", "danger"));
             return "redirect:/login";
@@ -116,8 +124,13 @@ public class VoteController {
         String name = principal.getName();
 
         try {
+            // Without an electionId the vote goes to the only open election
+            if (electionId == null) {
+                electionId = voteService.getCurrentElectionId();
+            }
+
             // Check if user has already voted
-            if (voteService.userExists(name)) {
+            if (voteService.hasVoted(electionId, name)) {
                 session.setAttribute("status", new Message("You have already voted. Thanks!", "warning"));
                 return "redirect:/public/home";
             }
@@ -129,52 +142,40 @@ public class VoteController {
                 return "redirect:/public/home";
             }
 
-            // Process the vote
-            boolean voteSuccess = voteService.isSuccessfull(choice, user.getUsername(), user.getFirstname());
+            // Process the vote; the commit also marks the user as voted
+            Votedata vote = voteService.castVote(electionId, choice, user.getUsername(), user.getFirstname());
 
-            if (voteSuccess) {
+            if (vote != null) {
                 // Get the vote hash
-                Votedata vote = voteRepo.findByUsername(name);
-                if (vote != null) {
-                    String hash = vote.getCurrhash();
-
-                    try {
-                        // Send confirmation email
-                        String f = "Vote Successfully Recorded";
-                        String s = "Your vote has been successfully recorded. Your unique vote hash (save this for verification): ";
-                        String t = hash;
-                        String email = user.getEmail();
-                        String subject = "Your Vote Has Been Recorded";
-                        String message = emailTemplate.getTemplate(f, s, t);
-
-                        // Send email in a separate thread to avoid blocking
-                        new Thread(() -> {
-                            try {
-                                System.out.println("[Vote Confirmation] Sending email to: " + email);
-                                System.out.println("[Vote Confirmation] Subject: " + subject);
-                                System.out.println("[Vote Confirmation] Message: " + message);
-                                boolean emailSent = emailservice.sendEmail(subject, message, email);
-                                System.out.println("[Vote Confirmation] Email sent result: " + emailSent);
-                            } catch (Exception e) {
-                                System.err.println("[Vote Confirmation] Failed to send confirmation email: " + e.getMessage());
-                                e.printStackTrace();
-                            }
-                        }).start();
-                        // Update user's voted status
-                        user.setVoted(true);
-                        User updatedUser = userService.updateUser(user);
-
-                        if (updatedUser != null) {
-                            session.setAttribute("status", new Message("Thank you for voting! A confirmation has been sent to your email.", "success"));
-                        } else {
-                            session.setAttribute("status", new Message("Your vote was recorded, but we couldn't update your profile. Please contact support.", "warning"));
+                String hash = vote.getCurrhash();
+
+                try {
+                    // Send confirmation email
+                    String f = "Vote Successfully Recorded";
+                    String s = "Your vote has been successfully recorded. Your unique vote hash (save this for verification): ";
+                    String t = hash;
+                    String email = user.getEmail();
+                    String subject = "Your Vote Has Been Recorded";
+                    String message = emailTemplate.getTemplate(f, s, t);
+
+                    // Send email in a separate thread to avoid blocking
+                    new Thread(() -> {
+                        try {
+                            System.out.println("[Vote Confirmation] Sending email to: " + email);
+                            System.out.println("[Vote Confirmation] Subject: " + subject);
+                            System.out.println("[Vote Confirmation] Message: " + message);
+                            boolean emailSent = emailservice.sendEmail(subject, message, email);
+                            System.out.println("[Vote Confirmation] Email sent result: " + emailSent);
+                        } catch (Exception e) {
+                            System.err.println("[Vote Confirmation] Failed to send confirmation email: " + e.getMessage());
+                            e.printStackTrace();
                         }
-                    } catch (Exception e) {
-                        System.err.println("Error in vote processing: " + e.getMessage());
-                        session.setAttribute("status", new Message("Your vote was recorded, but we encountered an issue sending your confirmation.", "warning"));
-                    }
-                } else {
-                    session.setAttribute("status", new Message("Vote recorded, but we couldn't generate a verification hash. Please contact support.", "warning"));
+                    }).start();
+
+                    session.setAttribute("status", new Message("Thank you for voting! A confirmation has been sent to your email.", "success"));
+                } catch (Exception e) {
+                    System.err.println("Error in vote processing: " + e.getMessage());
+                    session.setAttribute("status", new Message("Your vote was recorded, but we encountered an issue sending your confirmation.", "warning"));
                 }
             } else {
                 session.setAttribute("status", new Message("Failed to process your vote. Please try again or contact support if the problem persists.", "danger"));
@@ -188,57 +189,27 @@ public class VoteController {
     }
 
     @GetMapping("/showResults")
-    public String getResults(Model model) throws NoSuchAlgorithmException {
+    public String getResults(@RequestParam(value = "electionId", required = false) String electionId,
+                             Model model) throws NoSuchAlgorithmException {
         try {
-            // Get the winning party from the smart contract
-            String winningParty = smartcontract.voteCount();
-            
-            if (winningParty == null || winningParty.isEmpty()) {
-                model.addAttribute("error", "No votes have been cast yet.");
-                return "result.html";
-            }
-
-            System.out.println("-------------Winning Party-------------");
-            System.out.println(winningParty);
+            // Served from the in-memory results, nothing is read from Mongo per view
+            ResultsProjection.Snapshot results = resultsProjection.getSnapshot(voteService.getResultsElectionId(electionId));
+            Candidate winner = results.getLeader();
+            model.addAttribute("electionId", results.getElectionId());
+            model.addAttribute("resultElections", resultsProjection.getElectionIds());
 
-            // Get the winning candidate details
-            Candidate winner = candidaterepo.findByParty(winningParty);
             if (winner == null) {
-                model.addAttribute("error", "Could not find details for the winning party: " + winningParty);
+                model.addAttribute("error", "No votes have been cast yet.");
                 return "result.html";
             }
 
-            // Get all candidates and find the one with most votes
-            List<Candidate> allCandidates = candidateService.getAllCandidates();
-            
-            // Find candidate with highest votes
-            Candidate highestVoted = null;
-            int maxVotes = -1;
-            long totalVotes = 0;
-            
-            for (Candidate c : allCandidates) {
-                totalVotes += c.getVoteCount();
-                if (c.getVoteCount() > maxVotes) {
-                    maxVotes = c.getVoteCount();
-                    highestVoted = c;
-                }
-            }
-            
-            // If we have a vote leader from database, use that instead of blockchain result
-            if (highestVoted != null && highestVoted.getVoteCount() > 0) {
-                winner = highestVoted;
-            }
-            
             // Add attributes to the model
             model.addAttribute("winningParty", winner);
-            model.addAttribute("allCandidates", allCandidates);
-            model.addAttribute("totalVotes", totalVotes);
+            model.addAttribute("allCandidates", results.getCandidates());
+            model.addAttribute("totalVotes", results.getTotalVotes());
+            model.addAttribute("resultsVersion", results.getVersion());
             model.addAttribute("votingEnded", true); // Indicate voting has ended
-            
-            // Log the results for debugging
-            System.out.println("Total votes cast: " + totalVotes);
-            System.out.println("Winning party: " + winner.getParty() + " - " + winner.getFirstname() + " " + winner.getLastname());
-            
+
         } catch (Exception e) {
             e.printStackTrace();
             model.addAttribute("error", "An error occurred while calculating results: " + e.getMessage());
@@ -247,6 +218,13 @@ public class VoteController {
         return "result.html";
     }
 
+    // Live results of one election as Server-Sent Events, one "results" event per published snapshot
+    @GetMapping("/results/stream")
+    @ResponseBody
+    public SseEmitter streamResults(@RequestParam(value = "electionId", required = false) String electionId) {
+        return resultsProjection.subscribe(voteService.getResultsElectionId(electionId));
+    }
+
     /**
      * Endpoint to show final vote confirmation page
      */
@@ -0,0 +1,130 @@
+package net.codejava.helper;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Caches one value loaded from the database, keyed by a version number.
+ *
+ * The value is reused while the version is unchanged, up to maxAgeMs.
+ * Concurrent callers that find it stale share a single load instead of each
+ * running their own query. A value younger than minAgeMs is served even if
+ * the version has moved, which bounds the load rate while writes are
+ * constant.
+ *
+ * Every load gets an ETag that is unique for the life of the process, so
+ * clients can revalidate with If-None-Match.
+ */
+public class CoalescingCache<T> {
+
+    private final Supplier<T> loader;
+    private final LongSupplier version;
+    private final long minAgeMs;
+    private final long maxAgeMs;
+
+    // Keeps ETags from a previous run from matching this one's
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicLong generation = new AtomicLong();
+    private final AtomicReference<CompletableFuture<Entry<T>>> inFlight = new AtomicReference<>();
+    private volatile Entry<T> current;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+
+    public CoalescingCache(Supplier<T> loader, LongSupplier version, long minAgeMs, long maxAgeMs) {
+        this.loader = loader;
+        this.version = version;
+        this.minAgeMs = minAgeMs;
+        this.maxAgeMs = maxAgeMs;
+    }
+
+    public Entry<T> get() {
+        while (true) {
+            Entry<T> entry = current;
+            if (entry != null && isFresh(entry)) {
+                hits.increment();
+                return entry;
+            }
+            CompletableFuture<Entry<T>> running = inFlight.get();
+            if (running != null) {
+                coalesced.increment();
+                return await(running);
+            }
+            CompletableFuture<Entry<T>> mine = new CompletableFuture<>();
+            if (inFlight.compareAndSet(null, mine)) {
+                return load(mine);
+            }
+            // Another caller started a load in between; join it on the next pass
+        }
+    }
+
+    /**
+     * Drops the cached value, so the next get loads again.
+     */
+    public void invalidate() {
+        current = null;
+    }
+
+    public long getHits() { return hits.sum(); }
+    public long getLoads() { return loads.sum(); }
+    public long getCoalesced() { return coalesced.sum(); }
+
+    private boolean isFresh(Entry<T> entry) {
+        long age = System.currentTimeMillis() - entry.loadedAt;
+        return age < minAgeMs || (age < maxAgeMs && entry.version == version.getAsLong());
+    }
+
+    private Entry<T> load(CompletableFuture<Entry<T>> mine) {
+        try {
+            // Read before the query, so a write during it leaves the entry already stale
+            long loadedVersion = version.getAsLong();
+            T value = loader.get();
+            Entry<T> entry = new Entry<>(value, loadedVersion, "\"" + epoch + "-" + generation.incrementAndGet() + "\"");
+            current = entry;
+            loads.increment();
+            mine.complete(entry);
+            return entry;
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.set(null);
+        }
+    }
+
+    private static <T> Entry<T> await(CompletableFuture<Entry<T>> running) {
+        try {
+            return running.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    // One loaded value; never modified after the load
+    public static class Entry<T> {
+        private final T value;
+        private final long version;
+        private final String etag;
+        private final long loadedAt = System.currentTimeMillis();
+
+        Entry(T value, long version, String etag) {
+            this.value = value;
+            this.version = version;
+            this.etag = etag;
+        }
+
+        public T getValue() { return value; }
+        public long getVersion() { return version; }
+        public String getEtag() { return etag; }
+        public long getLoadedAt() { return loadedAt; }
+    }
+}
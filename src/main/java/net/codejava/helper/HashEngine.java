@@ -0,0 +1,249 @@
+package net.codejava.helper;
+
+import java.nio.ByteBuffer;
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * SHA-256 hashing for blocks and votes without per-call garbage.
+ *
+ * Each thread keeps its own MessageDigest, encoding buffer and output
+ * arrays, so a hex hash costs one String and nothing else. Block fields are
+ * hashed through a canonical binary encoding:
+ *
+ *   int32 field count, then per field int32 UTF-8 length (-1 for null) and
+ *   the bytes, then the previous hash the same way, int64 timestamp and
+ *   int32 nonce, all big-endian.
+ *
+ * Length prefixes make the encoding unambiguous, unlike the old
+ * Arrays.toString concatenation where ["a,b"] and ["a","b"] could collide.
+ */
+public final class HashEngine {
+
+    public static final int HASH_LENGTH = 32;
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+    private HashEngine() {
+    }
+
+    private static final class Scratch {
+        final MessageDigest digest;
+        final byte[] hash = new byte[HASH_LENGTH];
+        final char[] hex = new char[HASH_LENGTH * 2];
+        ByteBuffer buffer = ByteBuffer.allocate(512);
+
+        Scratch() {
+            try {
+                digest = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new RuntimeException("SHA-256 algorithm not available", e);
+            }
+        }
+
+        ByteBuffer ensure(int extra) {
+            if (buffer.remaining() < extra) {
+                int needed = buffer.position() + extra;
+                ByteBuffer grown = ByteBuffer.allocate(Math.max(needed, buffer.capacity() * 2));
+                buffer.flip();
+                grown.put(buffer);
+                buffer = grown;
+            }
+            return buffer;
+        }
+
+        // Digests the buffer's contents into hash and clears the buffer
+        byte[] finish() {
+            buffer.flip();
+            digest.update(buffer);
+            buffer.clear();
+            try {
+                digest.digest(hash, 0, HASH_LENGTH);
+            } catch (DigestException e) {
+                throw new IllegalStateException(e);
+            }
+            return hash;
+        }
+    }
+
+    /**
+     * Hex hash of a block, in the canonical encoding described above.
+     */
+    public static String blockHash(String[] data, String previousHash, long timestamp, int nonce) {
+        Scratch s = SCRATCH.get();
+        encodeBlock(s, data, previousHash, timestamp, nonce);
+        return hex(s, s.finish());
+    }
+
+    /**
+     * Raw 32-byte hash of a block, written into out at offset.
+     */
+    public static void blockHash(String[] data, String previousHash, long timestamp, int nonce, byte[] out, int offset) {
+        Scratch s = SCRATCH.get();
+        encodeBlock(s, data, previousHash, timestamp, nonce);
+        System.arraycopy(s.finish(), 0, out, offset, HASH_LENGTH);
+    }
+
+    /**
+     * Writes the canonical encoding of a block into target, e.g. to hash it
+     * elsewhere or to vary the nonce in place (the last four bytes).
+     */
+    public static void encodeBlock(String[] data, String previousHash, long timestamp, int nonce, ByteBuffer target) {
+        Scratch s = SCRATCH.get();
+        encodeBlock(s, data, previousHash, timestamp, nonce);
+        s.buffer.flip();
+        target.put(s.buffer);
+        s.buffer.clear();
+    }
+
+    /**
+     * The canonical encoding of a block as a new array. The nonce is the last four bytes.
+     */
+    public static byte[] encodeBlock(String[] data, String previousHash, long timestamp, int nonce) {
+        Scratch s = SCRATCH.get();
+        encodeBlock(s, data, previousHash, timestamp, nonce);
+        s.buffer.flip();
+        byte[] out = new byte[s.buffer.remaining()];
+        s.buffer.get(out);
+        s.buffer.clear();
+        return out;
+    }
+
+    /**
+     * Hex hash of the strings concatenated, the same bytes String.concat and
+     * getBytes(UTF_8) would produce but without building the string. Nulls
+     * are hashed as "null", like string concatenation.
+     */
+    public static String concatHash(String[] parts, String tail) {
+        Scratch s = SCRATCH.get();
+        if (parts != null) {
+            for (String part : parts) {
+                putUtf8(s, part == null ? "null" : part);
+            }
+        }
+        putUtf8(s, tail == null ? "null" : tail);
+        return hex(s, s.finish());
+    }
+
+    /**
+     * SHA-256 of the remaining bytes of input. The input's position is moved to its limit.
+     */
+    public static void sha256(ByteBuffer input, byte[] out, int offset) {
+        MessageDigest md = SCRATCH.get().digest;
+        md.update(input);
+        try {
+            md.digest(out, offset, HASH_LENGTH);
+        } catch (DigestException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * SHA-256 of input, written into out at offset.
+     */
+    public static void sha256(byte[] input, byte[] out, int offset) {
+        MessageDigest md = SCRATCH.get().digest;
+        md.update(input);
+        try {
+            md.digest(out, offset, HASH_LENGTH);
+        } catch (DigestException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public static byte[] sha256(byte[] input) {
+        return SCRATCH.get().digest.digest(input);
+    }
+
+    public static byte[] sha256(byte[] left, byte[] right) {
+        MessageDigest md = SCRATCH.get().digest;
+        md.update(left);
+        md.update(right);
+        return md.digest();
+    }
+
+    public static String toHex(byte[] bytes) {
+        return toHex(bytes, 0, bytes.length);
+    }
+
+    public static String toHex(byte[] bytes, int offset, int length) {
+        char[] out = length == HASH_LENGTH ? SCRATCH.get().hex : new char[length * 2];
+        for (int i = 0; i < length; i++) {
+            int b = bytes[offset + i] & 0xff;
+            out[2 * i] = HEX[b >>> 4];
+            out[2 * i + 1] = HEX[b & 0xf];
+        }
+        return new String(out, 0, length * 2);
+    }
+
+    public static byte[] fromHex(String hex) {
+        byte[] out = new byte[hex.length() / 2];
+        for (int i = 0; i < out.length; i++) {
+            out[i] = (byte) ((Character.digit(hex.charAt(2 * i), 16) << 4) | Character.digit(hex.charAt(2 * i + 1), 16));
+        }
+        return out;
+    }
+
+    private static String hex(Scratch s, byte[] hash) {
+        char[] out = s.hex;
+        for (int i = 0; i < HASH_LENGTH; i++) {
+            int b = hash[i] & 0xff;
+            out[2 * i] = HEX[b >>> 4];
+            out[2 * i + 1] = HEX[b & 0xf];
+        }
+        return new String(out);
+    }
+
+    private static void encodeBlock(Scratch s, String[] data, String previousHash, long timestamp, int nonce) {
+        s.ensure(4).putInt(data == null ? -1 : data.length);
+        if (data != null) {
+            for (String field : data) {
+                putField(s, field);
+            }
+        }
+        putField(s, previousHash);
+        s.ensure(12).putLong(timestamp).putInt(nonce);
+    }
+
+    private static void putField(Scratch s, String value) {
+        if (value == null) {
+            s.ensure(4).putInt(-1);
+            return;
+        }
+        int lengthAt = s.ensure(4).position();
+        s.buffer.putInt(0);
+        int start = s.buffer.position();
+        putUtf8(s, value);
+        s.buffer.putInt(lengthAt, s.buffer.position() - start);
+    }
+
+    // Same bytes as getBytes(UTF_8), including '?' for unpaired surrogates
+    private static void putUtf8(Scratch s, String value) {
+        int length = value.length();
+        ByteBuffer buf = s.ensure(length * 3);
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                buf.put((byte) c);
+            } else if (c < 0x800) {
+                buf.put((byte) (0xc0 | (c >> 6)));
+                buf.put((byte) (0x80 | (c & 0x3f)));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, value.charAt(++i));
+                buf.put((byte) (0xf0 | (cp >> 18)));
+                buf.put((byte) (0x80 | ((cp >> 12) & 0x3f)));
+                buf.put((byte) (0x80 | ((cp >> 6) & 0x3f)));
+                buf.put((byte) (0x80 | (cp & 0x3f)));
+            } else if (Character.isSurrogate(c)) {
+                buf.put((byte) '?');
+            } else {
+                buf.put((byte) (0xe0 | (c >> 12)));
+                buf.put((byte) (0x80 | ((c >> 6) & 0x3f)));
+                buf.put((byte) (0x80 | (c & 0x3f)));
+            }
+        }
+    }
+}
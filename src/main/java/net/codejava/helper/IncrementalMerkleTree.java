@@ -0,0 +1,196 @@
+package net.codejava.helper;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Append-only Merkle tree with the same shape and proofs as MerkleTree, so
+ * MerkleTree.computeRoot verifies its proofs.
+ *
+ * Nodes are kept per level in flat byte arrays. Appending a leaf only
+ * rehashes its path to the root, since every node left of that path is
+ * final. That is O(log n) hashes per append. A small open-addressing table
+ * maps leaves back to their index for proof lookups.
+ *
+ * Not thread-safe; callers synchronize.
+ */
+public class IncrementalMerkleTree {
+
+    private static final int NODE = HashEngine.HASH_LENGTH;
+
+    private final List<byte[]> levels = new ArrayList<>();
+    private final List<Integer> sizes = new ArrayList<>();
+    // Node prefix followed by the two children
+    private final byte[] scratch = new byte[1 + NODE * 2];
+
+    // Leaf prefix -> index + 1, 0 meaning empty
+    private long[] indexKeys = new long[1024];
+    private int[] indexValues = new int[1024];
+
+    public IncrementalMerkleTree() {
+        levels.add(new byte[NODE * 64]);
+        sizes.add(0);
+        scratch[0] = MerkleTree.NODE_PREFIX;
+    }
+
+    /**
+     * Adds a 32-byte leaf, as made by MerkleTree.leaf, and returns its index.
+     */
+    public int append(byte[] leaf) {
+        int index = sizes.get(0);
+        put(0, index, leaf, 0);
+        addToIndex(leaf, index);
+
+        int position = index;
+        for (int depth = 0; sizes.get(depth) > 1; depth++) {
+            byte[] level = levels.get(depth);
+            int left = position & ~1;
+            boolean paired = left + 1 < sizes.get(depth);
+            if (depth + 1 == levels.size()) {
+                levels.add(new byte[NODE * 64]);
+                sizes.add(0);
+            }
+            position >>= 1;
+            if (paired) {
+                System.arraycopy(level, left * NODE, scratch, 1, NODE);
+                System.arraycopy(level, (left + 1) * NODE, scratch, 1 + NODE, NODE);
+                HashEngine.sha256(scratch, nodeBuffer(depth + 1, position), position * NODE);
+            } else {
+                // A last node without a sibling moves up unchanged
+                System.arraycopy(level, left * NODE, nodeBuffer(depth + 1, position), position * NODE, NODE);
+            }
+            if (position == sizes.get(depth + 1)) {
+                sizes.set(depth + 1, position + 1);
+            }
+        }
+        return index;
+    }
+
+    public int size() {
+        return sizes.get(0);
+    }
+
+    /**
+     * The root, or null while the tree is empty.
+     */
+    public byte[] getRoot() {
+        if (size() == 0) {
+            return null;
+        }
+        int top = topLevel();
+        return Arrays.copyOfRange(levels.get(top), 0, NODE);
+    }
+
+    public byte[] getLeaf(int index) {
+        return Arrays.copyOfRange(levels.get(0), index * NODE, (index + 1) * NODE);
+    }
+
+    /**
+     * Index of the leaf, or -1 if it isn't in the tree.
+     */
+    public int indexOf(byte[] leaf) {
+        int mask = indexKeys.length - 1;
+        long key = prefix(leaf, 0);
+        for (int slot = mix(key) & mask; indexValues[slot] != 0; slot = (slot + 1) & mask) {
+            int candidate = indexValues[slot] - 1;
+            if (indexKeys[slot] == key && equalsLeaf(candidate, leaf)) {
+                return candidate;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Sibling hashes from the leaf up to the root, hex encoded, as MerkleTree.getProof.
+     */
+    public List<String> getProof(int index) {
+        List<String> proof = new ArrayList<>();
+        int top = topLevel();
+        for (int depth = 0; depth < top; depth++) {
+            int sibling = index ^ 1;
+            if (sibling < sizes.get(depth)) {
+                proof.add(HashEngine.toHex(levels.get(depth), sibling * NODE, NODE));
+            }
+            index >>= 1;
+        }
+        return proof;
+    }
+
+    private int topLevel() {
+        int top = 0;
+        while (sizes.get(top) > 1) {
+            top++;
+        }
+        return top;
+    }
+
+    private void put(int depth, int position, byte[] node, int offset) {
+        System.arraycopy(node, offset, nodeBuffer(depth, position), position * NODE, NODE);
+        if (position == sizes.get(depth)) {
+            sizes.set(depth, position + 1);
+        }
+    }
+
+    // Level array with room for position, grown by doubling
+    private byte[] nodeBuffer(int depth, int position) {
+        byte[] level = levels.get(depth);
+        if ((position + 1) * NODE > level.length) {
+            level = Arrays.copyOf(level, Math.max(level.length * 2, (position + 1) * NODE));
+            levels.set(depth, level);
+        }
+        return level;
+    }
+
+    private boolean equalsLeaf(int index, byte[] leaf) {
+        byte[] level = levels.get(0);
+        for (int i = 0; i < NODE; i++) {
+            if (level[index * NODE + i] != leaf[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void addToIndex(byte[] leaf, int index) {
+        if ((index + 1) * 2 > indexKeys.length) {
+            rehash(indexKeys.length * 2);
+        }
+        insert(indexKeys, indexValues, prefix(leaf, 0), index + 1);
+    }
+
+    private void rehash(int capacity) {
+        long[] keys = new long[capacity];
+        int[] values = new int[capacity];
+        for (int slot = 0; slot < indexValues.length; slot++) {
+            if (indexValues[slot] != 0) {
+                insert(keys, values, indexKeys[slot], indexValues[slot]);
+            }
+        }
+        indexKeys = keys;
+        indexValues = values;
+    }
+
+    private static void insert(long[] keys, int[] values, long key, int value) {
+        int mask = keys.length - 1;
+        int slot = mix(key) & mask;
+        while (values[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+    }
+
+    private static long prefix(byte[] bytes, int offset) {
+        long value = 0;
+        for (int i = 0; i < 8; i++) {
+            value = (value << 8) | (bytes[offset + i] & 0xff);
+        }
+        return value;
+    }
+
+    private static int mix(long key) {
+        // Leaves are already hashes, folding the halves is enough
+        return (int) (key ^ (key >>> 32));
+    }
+}
@@ -0,0 +1,119 @@
+package net.codejava.helper;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Binary SHA-256 Merkle tree over vote block hashes.
+ *
+ * Hashes are domain separated: leaves are sha256(0x00 || vote hash) and
+ * parents sha256(0x01 || left || right), so an internal node can never be
+ * passed off as a leaf. A level with an odd number of nodes promotes its
+ * last node to the next level unchanged. That node has no sibling at that
+ * level, so proofs are checked against the leaf count, which tells where
+ * those steps are.
+ */
+public class MerkleTree {
+
+    public static final byte LEAF_PREFIX = 0x00;
+    public static final byte NODE_PREFIX = 0x01;
+
+    private final List<byte[][]> levels = new ArrayList<>();
+
+    public MerkleTree(List<byte[]> leaves) {
+        if (leaves.isEmpty()) {
+            throw new IllegalArgumentException("Merkle tree needs at least one leaf");
+        }
+        byte[][] level = leaves.toArray(new byte[0][]);
+        levels.add(level);
+        while (level.length > 1) {
+            byte[][] parents = new byte[(level.length + 1) / 2][];
+            for (int i = 0; i < parents.length; i++) {
+                byte[] left = level[2 * i];
+                parents[i] = (2 * i + 1 < level.length) ? hashPair(left, level[2 * i + 1]) : left;
+            }
+            levels.add(parents);
+            level = parents;
+        }
+    }
+
+    public byte[] getRoot() {
+        return levels.get(levels.size() - 1)[0];
+    }
+
+    public int size() {
+        return levels.get(0).length;
+    }
+
+    /**
+     * Sibling hashes from the leaf up to the root, hex encoded. Levels where
+     * the node is promoted have no entry.
+     */
+    public List<String> getProof(int index) {
+        List<String> proof = new ArrayList<>();
+        for (int depth = 0; depth < levels.size() - 1; depth++) {
+            byte[][] level = levels.get(depth);
+            int sibling = index ^ 1;
+            if (sibling < level.length) {
+                proof.add(toHex(level[sibling]));
+            }
+            index >>= 1;
+        }
+        return proof;
+    }
+
+    /**
+     * Recomputes the root from a leaf, its index, the number of leaves in
+     * the tree and its proof.
+     */
+    public static byte[] computeRoot(byte[] leaf, int index, int leafCount, List<String> proof) {
+        byte[] node = leaf;
+        int next = 0;
+        for (int size = leafCount; size > 1; size = (size + 1) / 2) {
+            if ((index ^ 1) < size) {
+                if (next == proof.size()) {
+                    throw new IllegalArgumentException("Proof is too short for " + leafCount + " leaves");
+                }
+                byte[] sibling = fromHex(proof.get(next++));
+                node = ((index & 1) == 0) ? hashPair(node, sibling) : hashPair(sibling, node);
+            }
+            index >>= 1;
+        }
+        if (next != proof.size()) {
+            throw new IllegalArgumentException("Proof is too long for " + leafCount + " leaves");
+        }
+        return node;
+    }
+
+    /**
+     * Leaf for a stored vote hash: sha256(0x00 || hash). Block hashes are
+     * 32-byte hex strings; anything else (e.g. legacy rows) is hashed to 32
+     * bytes first so it still fits the tree.
+     */
+    public static byte[] leaf(String voteHash) {
+        byte[] value;
+        if (voteHash != null && voteHash.length() == 64 && voteHash.matches("[0-9a-fA-F]+")) {
+            value = fromHex(voteHash);
+        } else {
+            value = HashEngine.sha256(String.valueOf(voteHash).getBytes(StandardCharsets.UTF_8));
+        }
+        return HashEngine.sha256(new byte[] { LEAF_PREFIX }, value);
+    }
+
+    public static byte[] hashPair(byte[] left, byte[] right) {
+        byte[] input = new byte[1 + left.length + right.length];
+        input[0] = NODE_PREFIX;
+        System.arraycopy(left, 0, input, 1, left.length);
+        System.arraycopy(right, 0, input, 1 + left.length, right.length);
+        return HashEngine.sha256(input);
+    }
+
+    public static String toHex(byte[] bytes) {
+        return HashEngine.toHex(bytes);
+    }
+
+    public static byte[] fromHex(String hex) {
+        return HashEngine.fromHex(hex);
+    }
+}
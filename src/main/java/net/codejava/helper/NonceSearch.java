@@ -0,0 +1,148 @@
+package net.codejava.helper;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Proof-of-work nonce search over a block's canonical encoding.
+ *
+ * The 2^32 nonce space is split recursively across a ForkJoin pool. Each
+ * leaf patches the nonce into its own copy of the encoding and hashes it
+ * with the thread's digest, checking leading zero bits on the raw bytes.
+ * The first solution found stops every other worker.
+ */
+public final class NonceSearch {
+
+    private static final long NONCE_SPACE = 1L << 32;
+    private static final int LEAF_SIZE = 1 << 14;
+
+    private NonceSearch() {
+    }
+
+    public static final class Result {
+        private final int nonce;
+        private final String hash;
+        private final long hashes;
+        private final long nanos;
+
+        private Result(int nonce, String hash, long hashes, long nanos) {
+            this.nonce = nonce;
+            this.hash = hash;
+            this.hashes = hashes;
+            this.nanos = nanos;
+        }
+
+        public int getNonce() {
+            return nonce;
+        }
+
+        public String getHash() {
+            return hash;
+        }
+
+        public long getHashes() {
+            return hashes;
+        }
+
+        public long getNanos() {
+            return nanos;
+        }
+
+        public double getHashesPerSecond() {
+            return nanos == 0 ? 0 : hashes * 1e9 / nanos;
+        }
+    }
+
+    /**
+     * Finds a nonce giving a hash with at least difficultyBits leading zero
+     * bits. template is a block encoding whose last four bytes hold the nonce.
+     * Returns null if the whole nonce space has no solution; callers should
+     * then change the timestamp and search again.
+     */
+    public static Result search(byte[] template, int difficultyBits, ForkJoinPool pool) {
+        long start = System.nanoTime();
+        AtomicReference<Integer> found = new AtomicReference<>();
+        LongAdder hashes = new LongAdder();
+        pool.invoke(new Range(template, difficultyBits, 0, NONCE_SPACE, found, hashes));
+        long nanos = System.nanoTime() - start;
+
+        Integer nonce = found.get();
+        if (nonce == null) {
+            return null;
+        }
+        byte[] encoding = template.clone();
+        putNonce(encoding, nonce);
+        byte[] hash = new byte[HashEngine.HASH_LENGTH];
+        HashEngine.sha256(encoding, hash, 0);
+        return new Result(nonce, HashEngine.toHex(hash), hashes.sum(), nanos);
+    }
+
+    public static boolean hasLeadingZeroBits(byte[] hash, int bits) {
+        int full = bits >>> 3;
+        for (int i = 0; i < full; i++) {
+            if (hash[i] != 0) {
+                return false;
+            }
+        }
+        int rest = bits & 7;
+        return rest == 0 || (hash[full] & 0xff) >>> (8 - rest) == 0;
+    }
+
+    private static void putNonce(byte[] encoding, int nonce) {
+        int at = encoding.length - 4;
+        encoding[at] = (byte) (nonce >>> 24);
+        encoding[at + 1] = (byte) (nonce >>> 16);
+        encoding[at + 2] = (byte) (nonce >>> 8);
+        encoding[at + 3] = (byte) nonce;
+    }
+
+    private static final class Range extends RecursiveAction {
+        private final byte[] template;
+        private final int bits;
+        private final long from;
+        private final long to;
+        private final AtomicReference<Integer> found;
+        private final LongAdder hashes;
+
+        Range(byte[] template, int bits, long from, long to, AtomicReference<Integer> found, LongAdder hashes) {
+            this.template = template;
+            this.bits = bits;
+            this.from = from;
+            this.to = to;
+            this.found = found;
+            this.hashes = hashes;
+        }
+
+        @Override
+        protected void compute() {
+            if (found.get() != null) {
+                return;
+            }
+            if (to - from > LEAF_SIZE) {
+                long mid = (from + to) >>> 1;
+                invokeAll(new Range(template, bits, from, mid, found, hashes),
+                        new Range(template, bits, mid, to, found, hashes));
+                return;
+            }
+
+            byte[] encoding = template.clone();
+            byte[] hash = new byte[HashEngine.HASH_LENGTH];
+            long done = 0;
+            for (long n = from; n < to; n++) {
+                if ((done & 1023) == 1023 && found.get() != null) {
+                    break;
+                }
+                putNonce(encoding, (int) n);
+                HashEngine.sha256(encoding, hash, 0);
+                done++;
+                if (hasLeadingZeroBits(hash, bits)) {
+                    found.compareAndSet(null, (int) n);
+                    break;
+                }
+            }
+            hashes.add(done);
+        }
+    }
+}
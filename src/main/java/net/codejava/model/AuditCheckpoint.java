@@ -0,0 +1,77 @@
+package net.codejava.model;
+
+import java.util.Date;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+// Last block of a vote chain that a full audit found intact, so the next
+// audit only has to verify blocks appended after it
+@Document(collection = "audit_checkpoints")
+public class AuditCheckpoint {
+
+    @Id
+    private String id;
+
+    private long sequence;
+    private String headHash;
+    private long blocksVerified;
+    private Date verifiedAt;
+
+    public AuditCheckpoint() {
+    }
+
+    public AuditCheckpoint(String id, long sequence, String headHash, long blocksVerified) {
+        this.id = id;
+        this.sequence = sequence;
+        this.headHash = headHash;
+        this.blocksVerified = blocksVerified;
+        this.verifiedAt = new Date();
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public void setSequence(long sequence) {
+        this.sequence = sequence;
+    }
+
+    public String getHeadHash() {
+        return headHash;
+    }
+
+    public void setHeadHash(String headHash) {
+        this.headHash = headHash;
+    }
+
+    public long getBlocksVerified() {
+        return blocksVerified;
+    }
+
+    public void setBlocksVerified(long blocksVerified) {
+        this.blocksVerified = blocksVerified;
+    }
+
+    public Date getVerifiedAt() {
+        return verifiedAt;
+    }
+
+    public void setVerifiedAt(Date verifiedAt) {
+        this.verifiedAt = verifiedAt;
+    }
+
+    @Override
+    public String toString() {
+        return "AuditCheckpoint [id=" + id + ", sequence=" + sequence + ", headHash=" + headHash
+                + ", blocksVerified=" + blocksVerified + ", verifiedAt=" + verifiedAt + "]";
+    }
+}
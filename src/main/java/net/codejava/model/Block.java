@@ -1,10 +1,10 @@
 package net.codejava.model;
 
-import java.io.UnsupportedEncodingException;
-import java.nio.charset.StandardCharsets;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
 import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+import net.codejava.helper.HashEngine;
+import net.codejava.helper.NonceSearch;
 
 public class Block {
     private String[] data;
@@ -22,34 +22,33 @@ public class Block {
     }
 
     public String calculateHash() {
-        try {
-            String dataString = Arrays.toString(data) + previousBlockHash + timestamp + nonce;
-            MessageDigest digest = MessageDigest.getInstance("SHA-256");
-            byte[] hashBytes = digest.digest(dataString.getBytes(StandardCharsets.UTF_8));
-            
-            StringBuilder hexString = new StringBuilder();
-            for (byte b : hashBytes) {
-                String hex = Integer.toHexString(0xff & b);
-                if (hex.length() == 1) {
-                    hexString.append('0');
-                }
-                hexString.append(hex);
-            }
-            return hexString.toString();
-        } catch (NoSuchAlgorithmException e) {
-            throw new RuntimeException("SHA-256 algorithm not available", e);
-        }
+        return HashEngine.blockHash(data, previousBlockHash, timestamp, nonce);
     }
 
     public void mineBlock(int difficulty) {
-        String target = new String(new char[difficulty]).replace('\0', '0');
-        while (!blockHash.substring(0, difficulty).equals(target)) {
-            nonce++;
-            blockHash = calculateHash();
-        }
+        // difficulty counts leading zero hex digits, four bits each
+        mine(difficulty * 4, ForkJoinPool.commonPool());
         System.out.println("Block mined: " + blockHash);
     }
 
+    /**
+     * Searches for a nonce whose hash has at least difficultyBits leading zero
+     * bits, using every worker in the pool. Moves the timestamp forward in the
+     * rare case the whole nonce space has no solution.
+     */
+    public NonceSearch.Result mine(int difficultyBits, ForkJoinPool pool) {
+        while (true) {
+            byte[] template = HashEngine.encodeBlock(data, previousBlockHash, timestamp, 0);
+            NonceSearch.Result result = NonceSearch.search(template, difficultyBits, pool);
+            if (result != null) {
+                nonce = result.getNonce();
+                blockHash = result.getHash();
+                return result;
+            }
+            timestamp++;
+        }
+    }
+
     // Getters and Setters
     public String[] getData() {
         return data;
@@ -3,6 +3,7 @@ package net.codejava.model;
 import java.beans.Transient;
 
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 @Document(collection = "candidates")
@@ -16,6 +17,7 @@ public class Candidate{
     private String firstname;
     private String lastname;
   
+    @Indexed
     private String party;
 
     private String partypic;
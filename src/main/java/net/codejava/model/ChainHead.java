@@ -0,0 +1,66 @@
+package net.codejava.model;
+
+import java.util.Date;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+// Persisted pointer to the newest block of a vote chain, so a restart can
+// resume appending without scanning the votedata collection
+@Document(collection = "chain_head")
+public class ChainHead {
+
+    @Id
+    private String id;
+
+    private String headHash;
+    private long sequence;
+    private Date updatedAt;
+
+    public ChainHead() {
+    }
+
+    public ChainHead(String id, String headHash, long sequence) {
+        this.id = id;
+        this.headHash = headHash;
+        this.sequence = sequence;
+        this.updatedAt = new Date();
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getHeadHash() {
+        return headHash;
+    }
+
+    public void setHeadHash(String headHash) {
+        this.headHash = headHash;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public void setSequence(long sequence) {
+        this.sequence = sequence;
+    }
+
+    public Date getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(Date updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
+    @Override
+    public String toString() {
+        return "ChainHead [id=" + id + ", headHash=" + headHash + ", sequence=" + sequence + ", updatedAt=" + updatedAt + "]";
+    }
+}
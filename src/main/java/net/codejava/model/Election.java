@@ -1,10 +1,18 @@
 package net.codejava.model;
 
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
 import org.springframework.data.mongodb.core.mapping.Document;
 import java.time.LocalDateTime;
 
 @Document(collection = "elections")
+@CompoundIndexes({
+    // Elections due to open, and active elections by start date
+    @CompoundIndex(name = "status_start", def = "{'status': 1, 'startDate': 1}"),
+    // Elections due to close
+    @CompoundIndex(name = "status_end", def = "{'status': 1, 'endDate': 1}")
+})
 public class Election {
     
     @Id
@@ -19,6 +27,9 @@ public class Election {
     private LocalDateTime endDate;
     
     private ElectionStatus status = ElectionStatus.PENDING;
+
+    // Proof-of-work leading zero bits for this election's vote blocks, null for the configured default
+    private Integer powDifficulty;
     
     private LocalDateTime createdAt;
     
@@ -85,6 +96,14 @@ public class Election {
         this.endDate = endDate;
     }
     
+    public Integer getPowDifficulty() {
+        return powDifficulty;
+    }
+
+    public void setPowDifficulty(Integer powDifficulty) {
+        this.powDifficulty = powDifficulty;
+    }
+
     public ElectionStatus getStatus() {
         return status;
     }
@@ -0,0 +1,71 @@
+package net.codejava.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+// Vote count of one party in one election. Votes without an election are
+// still counted in Candidate.voteCount
+@Document(collection = "election_tallies")
+public class ElectionTally {
+
+    @Id
+    private String id;
+
+    @Indexed
+    private String electionId;
+
+    private String party;
+    private long voteCount;
+
+    public ElectionTally() {
+    }
+
+    public ElectionTally(String electionId, String party, long voteCount) {
+        this.id = id(electionId, party);
+        this.electionId = electionId;
+        this.party = party;
+        this.voteCount = voteCount;
+    }
+
+    public static String id(String electionId, String party) {
+        return electionId + "/" + party;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getElectionId() {
+        return electionId;
+    }
+
+    public void setElectionId(String electionId) {
+        this.electionId = electionId;
+    }
+
+    public String getParty() {
+        return party;
+    }
+
+    public void setParty(String party) {
+        this.party = party;
+    }
+
+    public long getVoteCount() {
+        return voteCount;
+    }
+
+    public void setVoteCount(long voteCount) {
+        this.voteCount = voteCount;
+    }
+
+    @Override
+    public String toString() {
+        return "ElectionTally [id=" + id + ", electionId=" + electionId + ", party=" + party + ", voteCount=" + voteCount + "]";
+    }
+}
@@ -1,10 +1,13 @@
 package net.codejava.model;
 
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.mapping.Document;
 import java.util.List;
 
 @Document(collection = "face_data")
+// A user's images, newest first
+@CompoundIndex(name = "username_timestamp", def = "{'username': 1, 'timestamp': -1}")
 public class FaceData {
     @Id
     private String id;
@@ -0,0 +1,144 @@
+package net.codejava.model;
+
+import java.util.Date;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+// A window of one election's votes whose Merkle root is anchored on-chain in one transaction
+@Document(collection = "vote_batches")
+public class VoteBatch {
+
+    // SEALING batches have claimed their votes but have no root yet, and are
+    // never anchored until they are finished
+    public enum Status {
+        SEALING, PENDING, ANCHORED, FAILED
+    }
+
+    @Id
+    private String id;
+
+    // Election whose votes the batch holds, null for votes without one
+    private String electionId;
+    private String merkleRoot;
+    private int voteCount;
+    private long firstSequence;
+    private long lastSequence;
+    private Status status = Status.PENDING;
+    private int attempts;
+    private Date nextAttemptAt;
+    private String lastError;
+    private String txHash;
+    private Date createdAt;
+    private Date anchoredAt;
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getElectionId() {
+        return electionId;
+    }
+
+    public void setElectionId(String electionId) {
+        this.electionId = electionId;
+    }
+
+    public String getMerkleRoot() {
+        return merkleRoot;
+    }
+
+    public void setMerkleRoot(String merkleRoot) {
+        this.merkleRoot = merkleRoot;
+    }
+
+    public int getVoteCount() {
+        return voteCount;
+    }
+
+    public void setVoteCount(int voteCount) {
+        this.voteCount = voteCount;
+    }
+
+    public long getFirstSequence() {
+        return firstSequence;
+    }
+
+    public void setFirstSequence(long firstSequence) {
+        this.firstSequence = firstSequence;
+    }
+
+    public long getLastSequence() {
+        return lastSequence;
+    }
+
+    public void setLastSequence(long lastSequence) {
+        this.lastSequence = lastSequence;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(int attempts) {
+        this.attempts = attempts;
+    }
+
+    public Date getNextAttemptAt() {
+        return nextAttemptAt;
+    }
+
+    public void setNextAttemptAt(Date nextAttemptAt) {
+        this.nextAttemptAt = nextAttemptAt;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    public void setLastError(String lastError) {
+        this.lastError = lastError;
+    }
+
+    public String getTxHash() {
+        return txHash;
+    }
+
+    public void setTxHash(String txHash) {
+        this.txHash = txHash;
+    }
+
+    public Date getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(Date createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public Date getAnchoredAt() {
+        return anchoredAt;
+    }
+
+    public void setAnchoredAt(Date anchoredAt) {
+        this.anchoredAt = anchoredAt;
+    }
+
+    @Override
+    public String toString() {
+        return "VoteBatch [id=" + id + ", electionId=" + electionId + ", merkleRoot=" + merkleRoot + ", voteCount=" + voteCount + ", firstSequence="
+                + firstSequence + ", lastSequence=" + lastSequence + ", status=" + status + ", txHash=" + txHash + "]";
+    }
+}
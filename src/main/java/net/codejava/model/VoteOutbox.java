@@ -0,0 +1,150 @@
+package net.codejava.model;
+
+import java.util.Date;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+// Pending on-chain submission for a vote already committed to votedata.
+// The entry shares its id with the vote so enqueueing is idempotent.
+@Document(collection = "vote_outbox")
+// Entries due for (re)submission
+@CompoundIndex(name = "status_next_attempt", def = "{'status': 1, 'nextAttemptAt': 1}")
+public class VoteOutbox {
+
+    public enum Status {
+        PENDING, IN_FLIGHT, SUBMITTED, CONFIRMED, FAILED
+    }
+
+    @Id
+    private String id;
+
+    private String username;
+    private String candidate;
+    private Status status = Status.PENDING;
+    private int attempts;
+    private Date nextAttemptAt;
+    private Date lockedUntil;
+    private String lastError;
+    private String txHash;
+    // Account nonce the transaction was signed with; a dropped vote is only
+    // ever replaced at this nonce, so it can't be mined twice
+    private Long nonce;
+    private Date createdAt;
+    private Date updatedAt;
+
+    public VoteOutbox() {
+    }
+
+    public VoteOutbox(Votedata vote) {
+        this.id = vote.getId();
+        this.username = vote.getUsername();
+        this.candidate = vote.getCandidate();
+        this.createdAt = new Date();
+        this.updatedAt = this.createdAt;
+        this.nextAttemptAt = this.createdAt;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public void setUsername(String username) {
+        this.username = username;
+    }
+
+    public String getCandidate() {
+        return candidate;
+    }
+
+    public void setCandidate(String candidate) {
+        this.candidate = candidate;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(int attempts) {
+        this.attempts = attempts;
+    }
+
+    public Date getNextAttemptAt() {
+        return nextAttemptAt;
+    }
+
+    public void setNextAttemptAt(Date nextAttemptAt) {
+        this.nextAttemptAt = nextAttemptAt;
+    }
+
+    public Date getLockedUntil() {
+        return lockedUntil;
+    }
+
+    public void setLockedUntil(Date lockedUntil) {
+        this.lockedUntil = lockedUntil;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    public void setLastError(String lastError) {
+        this.lastError = lastError;
+    }
+
+    public String getTxHash() {
+        return txHash;
+    }
+
+    public void setTxHash(String txHash) {
+        this.txHash = txHash;
+    }
+
+    public Long getNonce() {
+        return nonce;
+    }
+
+    public void setNonce(Long nonce) {
+        this.nonce = nonce;
+    }
+
+    public Date getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(Date createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public Date getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(Date updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
+    @Override
+    public String toString() {
+        return "VoteOutbox [id=" + id + ", username=" + username + ", candidate=" + candidate + ", status=" + status
+                + ", attempts=" + attempts + ", txHash=" + txHash + ", nonce=" + nonce + ", lastError=" + lastError + "]";
+    }
+}
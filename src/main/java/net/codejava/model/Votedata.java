@@ -2,20 +2,133 @@ package net.codejava.model;
 
 import java.util.*;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 @Document(collection = "votedata")
+@CompoundIndexes({
+    // Walking one election's chain, and finding its head on restart
+    @CompoundIndex(name = "election_sequence", def = "{'electionId': 1, 'sequence': 1}"),
+    // Has this voter already voted in this election; one vote per voter and election
+    @CompoundIndex(name = "election_voter", def = "{'electionId': 1, 'username': 1}", unique = true),
+    // Unbatched votes of an election in chain order, and the votes a batch has claimed
+    @CompoundIndex(name = "batch_election_sequence", def = "{'batchId': 1, 'electionId': 1, 'sequence': 1}")
+})
 public class Votedata {
 
     @Id
     private String id;
     
+    // Election this vote belongs to, null for votes cast before elections partitioned the votes
+    private String electionId;
+
+    @Indexed
     private String username;
     private String candidate;
     private String prevhash;
+
+    // Block hash; looked up directly when a voter verifies their vote
+    @Indexed
     private String currhash;
+
+    // Newest vote by date seeds the chain head of a pre-sequencing collection
+    @Indexed
     private Date date;
 
+    // Remaining inputs of the block hash, so the hash can be recomputed from this row
+    private String voterName;
+    private Long blockTimestamp;
+    private Integer nonce;
+
+    // Position of this block in the vote chain, allocated by ChainHeadSequencer
+    @Indexed
+    private long sequence;
+
+    // On-chain transaction that recorded this vote, kept apart from the block hash
+    @Indexed(sparse = true)
+    private String txhash;
+
+    // Confirmation state of txhash as reported by ReceiptPoller
+    private TxStatus txstatus;
+    private Long blockNumber;
+
+    public enum TxStatus {
+        PENDING, CONFIRMED, REVERTED
+    }
+
+    // Set only on a void block: the inputs of a block whose vote failed after a
+    // later block had chained on it. The block stays so the chain still links
+    // and verifies; it counts as no one's vote
+    @Indexed(sparse = true)
+    private List<String> voidedData;
+
+    // Merkle batch this vote was anchored in, with its leaf index and inclusion proof
+    private String batchId;
+    private Integer merkleIndex;
+    private List<String> merkleProof;
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    /**
+     * Username of the void block at a sequence. Unique per chain, and never a
+     * voter's id, so void blocks don't collide in the one-vote-per-voter index.
+     */
+    public static String voidUsername(long sequence) {
+        return "void:" + sequence;
+    }
+
+    public List<String> getVoidedData() {
+        return voidedData;
+    }
+
+    public void setVoidedData(List<String> voidedData) {
+        this.voidedData = voidedData;
+    }
+
+    public boolean isVoided() {
+        return voidedData != null;
+    }
+
+    public String getElectionId() {
+        return electionId;
+    }
+
+    public void setElectionId(String electionId) {
+        this.electionId = electionId;
+    }
+
+    public String getVoterName() {
+        return voterName;
+    }
+
+    public void setVoterName(String voterName) {
+        this.voterName = voterName;
+    }
+
+    public Long getBlockTimestamp() {
+        return blockTimestamp;
+    }
+
+    public void setBlockTimestamp(Long blockTimestamp) {
+        this.blockTimestamp = blockTimestamp;
+    }
+
+    public Integer getNonce() {
+        return nonce;
+    }
+
+    public void setNonce(Integer nonce) {
+        this.nonce = nonce;
+    }
+
     public String getUsername() {
         return username;
     }
@@ -48,6 +161,62 @@ public class Votedata {
         this.date = date;
     }
 
+    public long getSequence() {
+        return sequence;
+    }
+
+    public void setSequence(long sequence) {
+        this.sequence = sequence;
+    }
+
+    public String getTxhash() {
+        return txhash;
+    }
+
+    public void setTxhash(String txhash) {
+        this.txhash = txhash;
+    }
+
+    public TxStatus getTxstatus() {
+        return txstatus;
+    }
+
+    public void setTxstatus(TxStatus txstatus) {
+        this.txstatus = txstatus;
+    }
+
+    public Long getBlockNumber() {
+        return blockNumber;
+    }
+
+    public void setBlockNumber(Long blockNumber) {
+        this.blockNumber = blockNumber;
+    }
+
+    public String getBatchId() {
+        return batchId;
+    }
+
+    public void setBatchId(String batchId) {
+        this.batchId = batchId;
+    }
+
+    public Integer getMerkleIndex() {
+        return merkleIndex;
+    }
+
+    public void setMerkleIndex(Integer merkleIndex) {
+        this.merkleIndex = merkleIndex;
+    }
+
+    public List<String> getMerkleProof() {
+        return merkleProof;
+    }
+
+    public void setMerkleProof(List<String> merkleProof) {
+        this.merkleProof = merkleProof;
+    }
+
     public String getCandidate() {
         return candidate;
     }
@@ -58,7 +227,7 @@ public class Votedata {
 
     @Override
     public String toString() {
-        return "Votedata [id=" + id + ", username=" + username + ", candidate=" + candidate + ", currhash=" + currhash + ", prevhash=" + prevhash + ", date=" + date + "]";
+        return "Votedata [id=" + id + ", electionId=" + electionId + ", username=" + username + ", candidate=" + candidate + ", currhash=" + currhash + ", prevhash=" + prevhash + ", date=" + date + ", sequence=" + sequence + ", txhash=" + txhash + ", txstatus=" + txstatus + ", batchId=" + batchId + "]";
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,11 @@
+package net.codejava.repository;
+
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+import net.codejava.model.VoteOutbox;
+
+public interface VoteOutboxRepo extends MongoRepository<VoteOutbox, String> {
+
+	public long countByStatus(VoteOutbox.Status status);
+
+}
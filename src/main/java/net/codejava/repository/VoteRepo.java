@@ -26,7 +26,15 @@ public interface VoteRepo extends MongoRepository<Votedata, String> {
 
 	@Query(value = "{}", count = true)
 	public Long findcount();
+	// Void blocks are in votedata but are no one's vote
+	@Query(value = "{'voidedData': {$exists: true}}", count = true)
+	public Long countVoided();
 
 	public Votedata findByCurrhash(String currhash);
 
+	public Votedata findByTxhash(String txhash);
+
+	@Query(value = "{'sequence': {$gt: ?0}}", sort = "{'sequence': -1}")
+	public Votedata findTopBySequenceGreaterThan(long sequence);
+
 }
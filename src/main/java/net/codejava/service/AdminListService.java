@@ -0,0 +1,205 @@
+package net.codejava.service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.mapping.Field;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentProperty;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import net.codejava.model.Candidate;
+import net.codejava.model.Pending;
+import net.codejava.model.User;
+
+/**
+ * Pages of voters, pending registrations and candidates for the admin lists.
+ *
+ * Pages are cut by key rather than by offset: each page continues after the
+ * last _id of the previous one, so every page is one bounded index range
+ * however deep the admin pages in. Only the displayed fields are read, into
+ * the row classes below; password hashes never leave Mongo.
+ *
+ * Page sizes default to vote.admin.page-size and are capped at
+ * vote.admin.max-page-size. The optional filter matches the start of the
+ * Aadhaar ID (index-backed) or any part of the name or email.
+ */
+@Service
+public class AdminListService {
+
+    @Value("${vote.admin.page-size:50}")
+    private int defaultPageSize;
+
+    @Value("${vote.admin.max-page-size:200}")
+    private int maxPageSize;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    public ListPage<UserRow> users(String filter, String after, Integer size) {
+        return page(User.class, UserRow.class, UserRow::getUsername, filter, after, size,
+                "firstname", "lastname", "email");
+    }
+
+    public ListPage<PendingRow> pendingUsers(String filter, String after, Integer size) {
+        return page(Pending.class, PendingRow.class, PendingRow::getUsername, filter, after, size,
+                "firstname", "lastname", "email");
+    }
+
+    public ListPage<CandidateRow> candidates(String filter, String after, Integer size) {
+        return page(Candidate.class, CandidateRow.class, CandidateRow::getId, filter, after, size,
+                "username", "firstname", "lastname", "party");
+    }
+
+    private <T> ListPage<T> page(Class<?> document, Class<T> row, Function<T, String> key,
+            String filter, String after, Integer size, String... searchFields) {
+        int limit = size == null || size <= 0 ? defaultPageSize : Math.min(size, maxPageSize);
+        String trimmed = filter == null ? "" : filter.trim();
+
+        Query query = new Query();
+        if (!trimmed.isEmpty()) {
+            List<Criteria> matches = new ArrayList<>();
+            matches.add(Criteria.where("_id").regex("^" + Pattern.quote(trimmed)));
+            for (String field : searchFields) {
+                matches.add(Criteria.where(field).regex(Pattern.quote(trimmed), "i"));
+            }
+            query.addCriteria(new Criteria().orOperator(matches.toArray(new Criteria[0])));
+        }
+        if (after != null && !after.isEmpty()) {
+            query.addCriteria(Criteria.where("_id").gt(after));
+        }
+        // One extra row tells whether another page follows
+        query.with(Sort.by(Sort.Direction.ASC, "_id")).limit(limit + 1);
+        for (MongoPersistentProperty property : mongoTemplate.getConverter().getMappingContext()
+                .getRequiredPersistentEntity(row)) {
+            query.fields().include(property.getFieldName());
+        }
+
+        List<T> rows = mongoTemplate.find(query, row, mongoTemplate.getCollectionName(document));
+        String next = null;
+        if (rows.size() > limit) {
+            rows = new ArrayList<>(rows.subList(0, limit));
+            next = key.apply(rows.get(limit - 1));
+        }
+        return new ListPage<>(rows, trimmed, after, next, limit);
+    }
+
+    // One page of rows, with what's needed to link the next one
+    public static class ListPage<T> {
+        private final List<T> items;
+        private final String filter;
+        private final String after;
+        private final String nextCursor;
+        private final int size;
+
+        public ListPage(List<T> items, String filter, String after, String nextCursor, int size) {
+            this.items = items;
+            this.filter = filter;
+            this.after = after;
+            this.nextCursor = nextCursor;
+            this.size = size;
+        }
+
+        public List<T> getItems() { return items; }
+        public String getFilter() { return filter; }
+        public String getAfter() { return after; }
+        public String getNextCursor() { return nextCursor; }
+        public int getSize() { return size; }
+        public boolean isFirstPage() { return after == null || after.isEmpty(); }
+    }
+
+    // Fields of a voter shown in the users list
+    public static class UserRow {
+        @Id
+        private String username;
+        private String firstname;
+        private String lastname;
+        private String email;
+        private String photos;
+
+        public String getUsername() { return username; }
+        public String getFirstname() { return firstname; }
+        public String getLastname() { return lastname; }
+        public String getEmail() { return email; }
+        public String getPhotos() { return photos; }
+
+        public String getPhotosImagePath() {
+            return photos == null || username == null ? null : "/user-photos/" + username + "/" + photos;
+        }
+    }
+
+    // Fields of a registration shown for review, everything but the password
+    public static class PendingRow {
+        @Id
+        private String username;
+        private String firstname;
+        private String lastname;
+        private String email;
+        private String gender;
+        private LocalDate birthday;
+        private String mobileno;
+        private String photos;
+        private String adhaarpdf;
+        private String address;
+        private String state;
+        private String city;
+        private String zip;
+
+        public String getUsername() { return username; }
+        public String getFirstname() { return firstname; }
+        public String getLastname() { return lastname; }
+        public String getEmail() { return email; }
+        public String getGender() { return gender; }
+        public LocalDate getBirthday() { return birthday; }
+        public String getMobileno() { return mobileno; }
+        public String getPhotos() { return photos; }
+        public String getAdhaarpdf() { return adhaarpdf; }
+        public String getAddress() { return address; }
+        public String getState() { return state; }
+        public String getCity() { return city; }
+        public String getZip() { return zip; }
+
+        public String getPhotosImagePath() {
+            return photos == null || username == null ? null : "/user-photos/" + username + "/" + photos;
+        }
+
+        public String getAdhaarPdfPath() {
+            return adhaarpdf == null || username == null ? null : "/user-photos/" + username + "/" + adhaarpdf;
+        }
+    }
+
+    // Fields of a candidate shown in the candidates list
+    public static class CandidateRow {
+        @Id
+        private String id;
+        private String username;
+        private String firstname;
+        private String lastname;
+        private String party;
+        private String partypic;
+        private String candidatepic;
+        @Field("candidate_image_path")
+        private String candidateImagePath;
+
+        public String getId() { return id; }
+        public String getUsername() { return username; }
+        public String getFirstname() { return firstname; }
+        public String getLastname() { return lastname; }
+        public String getParty() { return party; }
+        public String getPartypic() { return partypic; }
+        public String getCandidateImagePath() { return candidateImagePath; }
+
+        public String getCandidatePicImagePath() {
+            return candidatepic == null || username == null ? null : candidatepic;
+        }
+    }
+}
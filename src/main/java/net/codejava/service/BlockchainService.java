@@ -1,14 +1,13 @@
 package net.codejava.service;
 
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import net.codejava.smartcontract.ContractStateCache;
+import net.codejava.smartcontract.ReceiptPoller;
 import io.reactivex.disposables.Disposable;
 import java.math.BigInteger;
 import org.web3j.protocol.Web3j;
-import org.web3j.protocol.http.HttpService;
 import org.web3j.crypto.Credentials;
 import org.web3j.protocol.core.methods.response.TransactionReceipt;
-import org.web3j.tx.RawTransactionManager;
 import org.web3j.tx.TransactionManager;
 import org.web3j.tx.gas.DefaultGasProvider;
 import org.web3j.abi.datatypes.Function;
@@ -37,20 +36,17 @@ public class BlockchainService {
     private final TransactionManager transactionManager;
     private final ObjectMapper objectMapper;
     private final DefaultGasProvider gasProvider;
+    private final ReceiptPoller receiptPoller;
+    private final ContractStateCache stateCache;
 
-    public BlockchainService(
-            @Value("${AVALANCHE_RPC_URL}") String rpcUrl,
-            @Value("${TEST_PRIVATE_KEY}") String privateKey) {
-        this.web3j = Web3j.build(new HttpService(rpcUrl));
-        this.credentials = Credentials.create(privateKey);
-        // Use chainId 43113 for Avalanche Fuji testnet with EIP-155
-        this.transactionManager = new RawTransactionManager(
-            web3j, 
-            credentials,
-            43113, // Avalanche Fuji testnet chainId
-            5,     // Attempt to retry failed transactions 5 times
-            3000   // 3 second delay between retries
-        );
+    public BlockchainService(Web3j web3j, Credentials credentials, TransactionManager transactionManager,
+            ReceiptPoller receiptPoller, ContractStateCache stateCache) {
+        this.web3j = web3j;
+        this.stateCache = stateCache;
+        this.receiptPoller = receiptPoller;
+        this.credentials = credentials;
+        // Shared with VotingContractService so both draw nonces from the same NonceManager
+        this.transactionManager = transactionManager;
         this.objectMapper = new ObjectMapper();
         this.gasProvider = new DefaultGasProvider();
 
@@ -84,8 +80,11 @@ public class BlockchainService {
                 encodedFunction,
                 BigInteger.ZERO
             );
-            String txHash = transaction.getTransactionHash();
-            return web3j.ethGetTransactionReceipt(txHash).send().getTransactionReceipt().get();
+            if (transaction.hasError()) {
+                throw new RuntimeException(transaction.getError().getMessage());
+            }
+            // Wait for the receipt through the shared poller instead of querying before it is mined
+            return receiptPoller.track(transaction.getTransactionHash()).get();
         } catch (Exception e) {
             throw new RuntimeException("Failed to add candidate to blockchain", e);
         }
@@ -107,14 +106,21 @@ public class BlockchainService {
                 encodedFunction,
                 BigInteger.ZERO
             );
-            String txHash = transaction.getTransactionHash();
-            return web3j.ethGetTransactionReceipt(txHash).send().getTransactionReceipt().get();
+            if (transaction.hasError()) {
+                throw new RuntimeException(transaction.getError().getMessage());
+            }
+            // Wait for the receipt through the shared poller instead of querying before it is mined
+            return receiptPoller.track(transaction.getTransactionHash()).get();
         } catch (Exception e) {
             throw new RuntimeException("Failed to record vote on blockchain", e);
         }
     }
 
     public boolean hasVoted(String address) {
+        Boolean cached = stateCache.hasVoted(address, stateCache.getRequiredBlock());
+        if (cached != null) {
+            return cached;
+        }
         try {
             Function function = new Function(
                 "voters",
@@ -139,6 +145,10 @@ public class BlockchainService {
     }
 
     public BigInteger getVoteCount(BigInteger candidateId) {
+        BigInteger cached = stateCache.getVotes(candidateId, stateCache.getRequiredBlock());
+        if (cached != null) {
+            return cached;
+        }
         try {
             Function function = new Function(
                 "getVotes",
@@ -13,6 +13,9 @@ public class CandidateService {
     
     @Autowired
     CandidateRepo candidateRepo;
+
+    @Autowired
+    ResultsProjection resultsProjection;
     
     public List<Candidate> getAllCandidates() {
 
@@ -30,6 +33,7 @@ public class CandidateService {
                 System.out.println("deleting user " + username);
 
                 candidateRepo.deleteById(username);
+                resultsProjection.candidatesChanged();
                 FileUtils.deleteDirectory(new File(path));
                 System.out.println();
                 return status;
@@ -0,0 +1,363 @@
+package net.codejava.service;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.util.CloseableIterator;
+import org.springframework.stereotype.Service;
+
+import net.codejava.helper.HashEngine;
+import net.codejava.model.AuditCheckpoint;
+import net.codejava.model.ChainHead;
+import net.codejava.model.Votedata;
+
+/**
+ * Verifies the votedata hash chain.
+ *
+ * Votes are streamed with a cursor in sequence order and cut into segments.
+ * Each segment is checked on a worker thread: every block's hash is
+ * recomputed from its stored fields, and every prevhash and sequence is
+ * compared with the block before it. The links between segments are checked
+ * afterwards, when the segments are stitched back together, and the last
+ * block must be the committed head: same sequence and same hash.
+ *
+ * A clean audit saves a checkpoint in audit_checkpoints. Later audits start
+ * from the checkpoint instead of re-reading the whole chain. Votes written
+ * before sequencing (sequence 0) can't be ordered, so they are not audited.
+ * Votes written before block fields were stored have their links checked
+ * but their hashes counted as unverifiable. Void blocks, saved where a
+ * vote failed after a later block chained on it, are verified from the
+ * inputs they keep and counted separately.
+ */
+@Service
+public class ChainAuditService {
+
+    // A broken encoding can fail every block; the report keeps the first ones and a count
+    private static final int MAX_REPORTED_BREAKS = 1000;
+
+    @Value("${vote.audit.segment-size:20000}")
+    private int segmentSize;
+
+    @Value("${vote.audit.threads:0}")
+    private int threads;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private ChainHeadSequencer chainHeadSequencer;
+
+    private ExecutorService workers;
+    private int parallelism;
+
+    @PostConstruct
+    private void start() {
+        parallelism = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger counter = new AtomicInteger();
+        workers = Executors.newFixedThreadPool(parallelism, r -> {
+            Thread t = new Thread(r, "chain-audit-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @PreDestroy
+    private void stop() {
+        workers.shutdownNow();
+    }
+
+    /**
+     * Audits the chain of votes without an election. With full set, ignores
+     * the checkpoint and starts from the first sequenced vote.
+     */
+    public AuditReport audit(boolean full) {
+        return audit(null, full);
+    }
+
+    /**
+     * Audits one election's chain, each of which has its own checkpoint.
+     * Only one audit runs at a time.
+     */
+    public synchronized AuditReport audit(String electionId, boolean full) {
+        long startedAt = System.currentTimeMillis();
+        String chainId = ChainHeadSequencer.chainId(electionId);
+        AuditCheckpoint checkpoint = full ? null
+                : mongoTemplate.findById(chainId, AuditCheckpoint.class);
+        long fromSequence = checkpoint == null ? 0 : checkpoint.getSequence();
+        String anchorHash = checkpoint == null ? null : checkpoint.getHeadHash();
+
+        // Blocks above the committed head may still be in flight
+        ChainHead head = chainHeadSequencer.getCommittedHead(electionId);
+        long toSequence = head.getSequence();
+
+        AuditReport report = new AuditReport(fromSequence, toSequence);
+        List<Future<Segment>> segments = new ArrayList<>();
+        // Bounds how many segments are held in memory at once
+        Semaphore inFlight = new Semaphore(parallelism * 2);
+
+        Query query = new Query(Criteria.where("electionId").is(electionId).and("sequence").gt(fromSequence).lte(toSequence))
+                .with(Sort.by(Sort.Direction.ASC, "sequence"));
+        query.fields().include("sequence").include("username").include("voterName").include("candidate")
+                .include("electionId").include("voidedData").include("prevhash").include("currhash").include("blockTimestamp").include("nonce");
+        query.cursorBatchSize(Math.min(segmentSize, 10000));
+
+        try (CloseableIterator<Votedata> votes = mongoTemplate.stream(query, Votedata.class)) {
+            List<Votedata> batch = new ArrayList<>(segmentSize);
+            while (votes.hasNext()) {
+                batch.add(votes.next());
+                if (batch.size() == segmentSize) {
+                    segments.add(submit(batch, inFlight));
+                    batch = new ArrayList<>(segmentSize);
+                }
+            }
+            if (!batch.isEmpty()) {
+                segments.add(submit(batch, inFlight));
+            }
+
+            // Stitch segments together: each must continue where the previous one ended
+            Segment previous = null;
+            for (Future<Segment> future : segments) {
+                Segment segment = future.get();
+                String expectedPrev = previous != null ? previous.lastHash
+                        : anchorHash != null ? anchorHash
+                        : segment.firstSequence == 1 ? ChainHeadSequencer.GENESIS_HASH : null;
+                long expectedSequence = previous != null ? previous.lastSequence + 1 : fromSequence + 1;
+                // Without a checkpoint the first segment may start after legacy votes
+                boolean knownStart = previous != null || checkpoint != null;
+                if (knownStart && segment.firstSequence != expectedSequence) {
+                    report.addBreak(segment.firstSequence, segment.firstId, "SEQUENCE_GAP",
+                            String.valueOf(expectedSequence), String.valueOf(segment.firstSequence));
+                }
+                if (expectedPrev != null && !expectedPrev.equals(segment.firstPrevHash)) {
+                    report.addBreak(segment.firstSequence, segment.firstId, "PREV_LINK", expectedPrev, segment.firstPrevHash);
+                }
+                report.merge(segment);
+                previous = segment;
+            }
+
+            // The verified blocks must end at the committed head, or the newest votes are missing,
+            // unless the chain only holds votes written before sequencing
+            boolean legacyOnly = previous == null && checkpoint == null && isLegacyHead(electionId, head);
+            if (legacyOnly) {
+                System.out.println("[AUDIT] " + chainId + " only holds votes written before sequencing");
+            } else if (previous == null && toSequence > fromSequence) {
+                report.addBreak(fromSequence + 1, null, "MISSING_BLOCKS",
+                        String.valueOf(toSequence), String.valueOf(fromSequence));
+            } else {
+                long lastSequence = previous != null ? previous.lastSequence : fromSequence;
+                String lastHash = previous != null ? previous.lastHash : anchorHash;
+                if (lastSequence != toSequence) {
+                    report.addBreak(lastSequence, null, "SEQUENCE_GAP",
+                            String.valueOf(toSequence), String.valueOf(lastSequence));
+                } else if (lastHash != null && !lastHash.equals(head.getHeadHash())) {
+                    report.addBreak(lastSequence, null, "HEAD_MISMATCH", head.getHeadHash(), lastHash);
+                }
+            }
+
+            if (previous != null && report.isIntact()) {
+                long verified = (checkpoint == null ? 0 : checkpoint.getBlocksVerified()) + report.getBlocksVerified();
+                mongoTemplate.save(new AuditCheckpoint(chainId, previous.lastSequence, previous.lastHash, verified));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Chain audit interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Chain audit failed: " + e.getCause().getMessage(), e.getCause());
+        } finally {
+            segments.forEach(f -> f.cancel(true));
+        }
+
+        report.setDurationMs(System.currentTimeMillis() - startedAt);
+        System.out.println("[AUDIT] Verified " + report.getBlocksVerified() + " blocks of " + chainId + " (" + report.getFromSequence() + ", "
+                + report.getToSequence() + "] in " + report.getDurationMs() + " ms, " + report.getBreakCount() + " breaks");
+        return report;
+    }
+
+    /**
+     * Drops the checkpoints of every chain, used when all votes are cleared.
+     */
+    public void reset() {
+        mongoTemplate.remove(new Query(), AuditCheckpoint.class);
+    }
+
+    // The original chain's head can be a vote written before sequencing
+    private boolean isLegacyHead(String electionId, ChainHead head) {
+        return electionId == null && mongoTemplate.exists(
+                new Query(Criteria.where("electionId").is(null).and("currhash").is(head.getHeadHash())), Votedata.class);
+    }
+
+    private Future<Segment> submit(List<Votedata> batch, Semaphore inFlight) throws InterruptedException {
+        inFlight.acquire();
+        return workers.submit(() -> {
+            try {
+                return verify(batch);
+            } finally {
+                inFlight.release();
+            }
+        });
+    }
+
+    /**
+     * Recomputes a vote's block hash from its stored fields, or returns null
+     * for votes written before those fields were stored.
+     */
+    public static String recomputeHash(Votedata vote) {
+        if (vote.getBlockTimestamp() == null) {
+            return null;
+        }
+        String[] data = vote.isVoided()
+                ? vote.getVoidedData().toArray(new String[0])
+                : vote.getElectionId() == null
+                ? new String[] { vote.getUsername(), vote.getVoterName(), vote.getCandidate() }
+                : new String[] { vote.getUsername(), vote.getVoterName(), vote.getCandidate(), vote.getElectionId() };
+        int nonce = vote.getNonce() == null ? 0 : vote.getNonce();
+        return HashEngine.blockHash(data, vote.getPrevhash(), vote.getBlockTimestamp(), nonce);
+    }
+
+    // Checks one segment on its own; its first prev link is left for stitching
+    private static Segment verify(List<Votedata> votes) {
+        Segment segment = new Segment();
+        Votedata first = votes.get(0);
+        segment.firstId = first.getId();
+        segment.firstSequence = first.getSequence();
+        segment.firstPrevHash = first.getPrevhash();
+
+        Votedata previous = null;
+        for (Votedata vote : votes) {
+            if (previous != null) {
+                if (vote.getSequence() != previous.getSequence() + 1) {
+                    segment.addBreak(vote.getSequence(), vote.getId(), "SEQUENCE_GAP",
+                            String.valueOf(previous.getSequence() + 1), String.valueOf(vote.getSequence()));
+                }
+                if (previous.getCurrhash() == null || !previous.getCurrhash().equals(vote.getPrevhash())) {
+                    segment.addBreak(vote.getSequence(), vote.getId(), "PREV_LINK", previous.getCurrhash(), vote.getPrevhash());
+                }
+            }
+            String hash = recomputeHash(vote);
+            if (hash == null) {
+                segment.unverifiable++;
+            } else {
+                if (!hash.equals(vote.getCurrhash())) {
+                    segment.addBreak(vote.getSequence(), vote.getId(), "HASH_MISMATCH", hash, vote.getCurrhash());
+                }
+            }
+            if (vote.isVoided()) {
+                segment.voided++;
+            }
+            segment.verified++;
+            previous = vote;
+        }
+        segment.lastSequence = previous.getSequence();
+        segment.lastHash = previous.getCurrhash();
+        return segment;
+    }
+
+    private static final class Segment {
+        private String firstId;
+        private long firstSequence;
+        private String firstPrevHash;
+        private long lastSequence;
+        private String lastHash;
+        private long verified;
+        private long unverifiable;
+        private long voided;
+        private long breakCount;
+        private final List<Break> breaks = new ArrayList<>();
+
+        void addBreak(long sequence, String voteId, String kind, String expected, String actual) {
+            if (breakCount++ < MAX_REPORTED_BREAKS) {
+                breaks.add(new Break(sequence, voteId, kind, expected, actual));
+            }
+        }
+    }
+
+    // One place where the chain does not hold
+    public static class Break {
+        private final long sequence;
+        private final String voteId;
+        private final String kind;
+        private final String expected;
+        private final String actual;
+
+        public Break(long sequence, String voteId, String kind, String expected, String actual) {
+            this.sequence = sequence;
+            this.voteId = voteId;
+            this.kind = kind;
+            this.expected = expected;
+            this.actual = actual;
+        }
+
+        public long getSequence() { return sequence; }
+        public String getVoteId() { return voteId; }
+        public String getKind() { return kind; }
+        public String getExpected() { return expected; }
+        public String getActual() { return actual; }
+    }
+
+    // Result of one audit run
+    public static class AuditReport {
+        private final long fromSequence;
+        private final long toSequence;
+        private final Date startedAt = new Date();
+        private long blocksVerified;
+        private long unverifiableHashes;
+        private long voidBlocks;
+        private long durationMs;
+        private long breakCount;
+        private final List<Break> breaks = new ArrayList<>();
+
+        public AuditReport(long fromSequence, long toSequence) {
+            this.fromSequence = fromSequence;
+            this.toSequence = toSequence;
+        }
+
+        void merge(Segment segment) {
+            blocksVerified += segment.verified;
+            unverifiableHashes += segment.unverifiable;
+            voidBlocks += segment.voided;
+            breakCount += segment.breakCount;
+            for (Break b : segment.breaks) {
+                if (breaks.size() < MAX_REPORTED_BREAKS) {
+                    breaks.add(b);
+                }
+            }
+        }
+
+        void addBreak(long sequence, String voteId, String kind, String expected, String actual) {
+            if (breakCount++ < MAX_REPORTED_BREAKS) {
+                breaks.add(new Break(sequence, voteId, kind, expected, actual));
+            }
+        }
+
+        void setDurationMs(long durationMs) {
+            this.durationMs = durationMs;
+        }
+
+        public boolean isIntact() { return breakCount == 0; }
+        public long getBreakCount() { return breakCount; }
+        public long getFromSequence() { return fromSequence; }
+        public long getToSequence() { return toSequence; }
+        public Date getStartedAt() { return startedAt; }
+        public long getBlocksVerified() { return blocksVerified; }
+        public long getUnverifiableHashes() { return unverifiableHashes; }
+        public long getVoidBlocks() { return voidBlocks; }
+        public long getDurationMs() { return durationMs; }
+        public List<Break> getBreaks() { return breaks; }
+    }
+}
@@ -0,0 +1,363 @@
+package net.codejava.service;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import net.codejava.model.Block;
+import net.codejava.model.ChainHead;
+import net.codejava.model.Votedata;
+import net.codejava.repository.VoteRepo;
+
+/**
+ * Hands out prev/curr links for the vote chains without touching the
+ * votedata collection. Every election has its own chain, and votes without
+ * an election (written before elections partitioned the votes) stay on the
+ * original one. Each chain's head lives in memory and is advanced with a
+ * compare-and-swap, so concurrent voters can never link to the same parent,
+ * and voters in different elections never contend.
+ * Heads are mirrored to the chain_head collection so a restart resumes in O(1).
+ */
+@Service
+public class ChainHeadSequencer {
+
+    public static final String CHAIN_ID = "votedata";
+    public static final String GENESIS_HASH = "0";
+
+    private static final Head GENESIS = new Head(GENESIS_HASH, 0);
+
+    private final Map<String, Chain> chains = new ConcurrentHashMap<>();
+    private ScheduledExecutorService flusher;
+
+    @Value("${vote.chain.head-flush-ms:1000}")
+    private long headFlushMs;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private VoteRepo voterepo;
+
+    @Autowired
+    private ProofOfWorkService proofOfWork;
+
+    @PostConstruct
+    private void loadHead() {
+        Chain chain = new Chain(CHAIN_ID, null);
+        try {
+            chain.head.set(recoverHead(chain));
+            System.out.println("[CHAIN] Resuming vote chain at sequence " + chain.head.get().sequence + " head=" + chain.head.get().hash);
+        } catch (Exception e) {
+            System.err.println("[CHAIN] Failed to load chain head, starting from genesis: " + e.getMessage());
+            chain.head.set(new Head(GENESIS_HASH, 0));
+        }
+        chains.put(CHAIN_ID, chain);
+        flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "chain-head-flusher");
+            t.setDaemon(true);
+            return t;
+        });
+        flusher.scheduleWithFixedDelay(this::flush, headFlushMs, headFlushMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    private void stop() {
+        flusher.shutdown();
+        flush();
+    }
+
+    /**
+     * Id of the chain_head document for an election's chain, CHAIN_ID for votes without one.
+     */
+    public static String chainId(String electionId) {
+        return electionId == null ? CHAIN_ID : "election:" + electionId;
+    }
+
+    private Chain chain(String electionId) {
+        Chain chain = chains.get(chainId(electionId));
+        if (chain != null) {
+            return chain;
+        }
+        // Recovered outside the map so a slow lookup doesn't block other chains
+        Chain loaded = new Chain(chainId(electionId), electionId);
+        loaded.head.set(recoverHead(loaded));
+        Chain raced = chains.putIfAbsent(loaded.id, loaded);
+        if (raced != null) {
+            return raced;
+        }
+        System.out.println("[CHAIN] Opened vote chain " + loaded.id + " at sequence " + loaded.head.get().sequence);
+        return loaded;
+    }
+
+    private Head recoverHead(Chain chain) {
+        ChainHead stored = mongoTemplate.findById(chain.id, ChainHead.class);
+        if (stored == null) {
+            Head start = GENESIS;
+            if (chain.electionId == null) {
+                // First start on a collection written before sequencing existed
+                Votedata last = voterepo.findTopByOrderByDateDesc();
+                start = (last == null) ? GENESIS : new Head(last.getCurrhash(), voterepo.count());
+            } else {
+                Votedata last = newestVote(chain.electionId, 0);
+                start = (last == null) ? GENESIS : new Head(last.getCurrhash(), last.getSequence());
+            }
+            mongoTemplate.save(new ChainHead(chain.id, start.hash, start.sequence));
+            return start;
+        }
+
+        // The head document is written after the vote itself, so a crash in
+        // between can leave it a few blocks behind the newest vote
+        Votedata newer = newestVote(chain.electionId, stored.getSequence());
+        if (newer != null) {
+            persist(chain.id, newer.getSequence(), newer.getCurrhash());
+            return new Head(newer.getCurrhash(), newer.getSequence());
+        }
+        return new Head(stored.getHeadHash(), stored.getSequence());
+    }
+
+    // Newest vote of the chain above the given sequence, or null
+    private Votedata newestVote(String electionId, long aboveSequence) {
+        Query query = new Query(Criteria.where("electionId").is(electionId).and("sequence").gt(aboveSequence))
+                .with(Sort.by(Sort.Direction.DESC, "sequence"))
+                .limit(1);
+        query.fields().include("sequence").include("currhash");
+        return mongoTemplate.findOne(query, Votedata.class);
+    }
+
+    /**
+     * Builds the next block on top of the current head, mining it if
+     * proof-of-work is on, and atomically makes it the new head. Retries if
+     * another voter appended in the meantime.
+     */
+    public Link allocate(String[] data) {
+        return allocate(null, data);
+    }
+
+    /**
+     * As allocate(data), on the chain of the given election.
+     */
+    public Link allocate(String electionId, String[] data) {
+        Chain chain = chain(electionId);
+        int difficultyBits = proofOfWork.getDifficultyBits(electionId);
+        if (difficultyBits > 0) {
+            // Mining takes long enough that losing the CAS would waste it,
+            // so mined blocks are built one at a time per chain
+            synchronized (chain.miningLock) {
+                return append(chain, data, difficultyBits);
+            }
+        }
+        return append(chain, data, 0);
+    }
+
+    private Link append(Chain chain, String[] data, int difficultyBits) {
+        while (true) {
+            Head current = chain.head.get();
+            Block block = new Block(data, current.hash);
+            proofOfWork.mine(block, difficultyBits);
+            Head next = new Head(block.getBlockHash(), current.sequence + 1);
+            if (chain.head.compareAndSet(current, next)) {
+                return new Link(block, next.sequence, chain.electionId);
+            }
+        }
+    }
+
+    /**
+     * Records an allocated link as durable once its vote has been saved. The
+     * chain_head document is written by a background flush rather than on
+     * every vote; startup reconciles it with the newest sequenced vote.
+     */
+    public void commit(Link link) {
+        Head saved = new Head(link.getBlock().getBlockHash(), link.getSequence());
+        chain(link.getElectionId()).durable.accumulateAndGet(saved,
+                (a, b) -> (a == null || b.sequence > a.sequence) ? b : a);
+    }
+
+    private void flush() {
+        for (Chain chain : chains.values()) {
+            Head latest = chain.durable.get();
+            if (latest == null || latest.sequence == chain.flushedSequence) {
+                continue;
+            }
+            try {
+                persist(chain.id, latest.sequence, latest.hash);
+                chain.flushedSequence = latest.sequence;
+            } catch (Exception e) {
+                System.err.println("[CHAIN] Failed to persist chain head " + chain.id + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Gives a link back when its vote could not be saved. Only possible while
+     * no later block has been chained on top of it.
+     */
+    public boolean release(Link link) {
+        AtomicReference<Head> head = chain(link.getElectionId()).head;
+        Head current = head.get();
+        if (current.sequence != link.getSequence() || !current.hash.equals(link.getBlock().getBlockHash())) {
+            return false;
+        }
+        return head.compareAndSet(current, new Head(link.getBlock().getPreviousBlockHash(), link.getSequence() - 1));
+    }
+
+    /**
+     * Saves a void block in place of a link that could not be released
+     * because a later block already chains on it. The void block keeps the
+     * link's hash inputs, so the chain has no gap and still verifies, but it
+     * is no one's vote. Returns false if it could not be saved.
+     */
+    public boolean voidLink(Link link) {
+        Block block = link.getBlock();
+        Votedata tombstone = new Votedata();
+        tombstone.setElectionId(link.getElectionId());
+        tombstone.setUsername(Votedata.voidUsername(link.getSequence()));
+        tombstone.setVoidedData(Arrays.asList(block.getData()));
+        tombstone.setPrevhash(block.getPreviousBlockHash());
+        tombstone.setCurrhash(block.getBlockHash());
+        tombstone.setBlockTimestamp(block.getTimestamp());
+        tombstone.setNonce(block.getNonce());
+        tombstone.setSequence(link.getSequence());
+        tombstone.setDate(new Date());
+        try {
+            mongoTemplate.insert(tombstone);
+        } catch (Exception e) {
+            System.err.println("[CHAIN] Failed to save void block " + link.getSequence() + " of "
+                    + chainId(link.getElectionId()) + ", the chain has a gap there: " + e.getMessage());
+            return false;
+        }
+        commit(link);
+        System.out.println("[CHAIN] Saved void block " + link.getSequence() + " of " + chainId(link.getElectionId()));
+        return true;
+    }
+
+    /**
+     * Starts every chain afresh from genesis, used when all votes are cleared.
+     */
+    public void reset() {
+        Chain chain = new Chain(CHAIN_ID, null);
+        chain.head.set(GENESIS);
+        chains.clear();
+        chains.put(CHAIN_ID, chain);
+        mongoTemplate.remove(new Query(Criteria.where("_id").ne(CHAIN_ID)), ChainHead.class);
+        mongoTemplate.save(new ChainHead(CHAIN_ID, GENESIS_HASH, 0));
+    }
+
+    public String getHeadHash() {
+        return getHeadHash(null);
+    }
+
+    public String getHeadHash(String electionId) {
+        return chain(electionId).head.get().hash;
+    }
+
+    public long getSequence() {
+        return getSequence(null);
+    }
+
+    public long getSequence(String electionId) {
+        return chain(electionId).head.get().sequence;
+    }
+
+    /**
+     * Sequence of the newest block whose vote has been saved, -1 if none since startup.
+     */
+    public long getCommittedSequence() {
+        return getCommittedSequence(null);
+    }
+
+    public long getCommittedSequence(String electionId) {
+        Head latest = chain(electionId).durable.get();
+        return latest == null ? -1 : latest.sequence;
+    }
+
+    /**
+     * Newest block whose vote has been saved, or the head loaded at startup
+     * if none has been saved since. Hash and sequence are read together.
+     */
+    public ChainHead getCommittedHead(String electionId) {
+        Chain chain = chain(electionId);
+        Head latest = chain.durable.get();
+        Head head = latest != null ? latest : chain.head.get();
+        return new ChainHead(chain.id, head.hash, head.sequence);
+    }
+
+    private void persist(String chainId, long sequence, String hash) {
+        Query query = new Query(Criteria.where("_id").is(chainId).and("sequence").lt(sequence));
+        Update update = new Update()
+                .set("headHash", hash)
+                .set("sequence", sequence)
+                .set("updatedAt", new Date());
+        mongoTemplate.updateFirst(query, update, ChainHead.class);
+    }
+
+    // Head state of one vote chain
+    private static final class Chain {
+        private final String id;
+        private final String electionId;
+        private final AtomicReference<Head> head = new AtomicReference<>();
+        private final AtomicReference<Head> durable = new AtomicReference<>();
+        private final Object miningLock = new Object();
+        private volatile long flushedSequence = -1;
+
+        private Chain(String id, String electionId) {
+            this.id = id;
+            this.electionId = electionId;
+        }
+    }
+
+    private static final class Head {
+        private final String hash;
+        private final long sequence;
+
+        private Head(String hash, long sequence) {
+            this.hash = hash;
+            this.sequence = sequence;
+        }
+    }
+
+    // A block together with its position in its election's chain
+    public static final class Link {
+        private final Block block;
+        private final long sequence;
+        private final String electionId;
+
+        public Link(Block block, long sequence) {
+            this(block, sequence, null);
+        }
+
+        public Link(Block block, long sequence, String electionId) {
+            this.block = block;
+            this.sequence = sequence;
+            this.electionId = electionId;
+        }
+
+        public Block getBlock() {
+            return block;
+        }
+
+        public long getSequence() {
+            return sequence;
+        }
+
+        public String getElectionId() {
+            return electionId;
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package net.codejava.service;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Service;
+
+import net.codejava.helper.CoalescingCache;
+import net.codejava.model.Candidate;
+import net.codejava.model.Pending;
+import net.codejava.model.User;
+
+/**
+ * Numbers for the admin dashboard.
+ *
+ * Collection sizes come from the collection metadata (estimatedDocumentCount),
+ * so no document is read or deserialized however large the voter roll gets.
+ * The result is cached per TallyVersion, like StatsService, for at least
+ * vote.dashboard.min-age-ms and at most vote.dashboard.max-age-ms.
+ */
+@Service
+public class DashboardStatsService {
+
+    @Value("${vote.dashboard.min-age-ms:1000}")
+    private long minAgeMs;
+
+    @Value("${vote.dashboard.max-age-ms:5000}")
+    private long maxAgeMs;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private ElectionService electionService;
+
+    @Autowired
+    private TallyVersion tallyVersion;
+
+    private CoalescingCache<DashboardStats> cache;
+
+    @PostConstruct
+    private void init() {
+        cache = new CoalescingCache<>(this::load, tallyVersion::current, minAgeMs, maxAgeMs);
+    }
+
+    public DashboardStats getDashboardStats() {
+        return cache.get().getValue();
+    }
+
+    private DashboardStats load() {
+        ElectionService.ElectionStats electionStats = electionService.getElectionStats();
+        return new DashboardStats(
+            count(User.class),
+            count(Candidate.class),
+            count(Pending.class),
+            electionStats.getTotalElections(),
+            electionStats.getActiveElections(),
+            electionStats.getCompletedElections()
+        );
+    }
+
+    private long count(Class<?> type) {
+        return mongoTemplate.getCollection(mongoTemplate.getCollectionName(type)).estimatedDocumentCount();
+    }
+
+    // Inner class for dashboard statistics
+    public static class DashboardStats {
+        private final long totalUsers;
+        private final long totalCandidates;
+        private final long pendingUsers;
+        private final long totalElections;
+        private final long activeElections;
+        private final long completedElections;
+
+        public DashboardStats(long totalUsers, long totalCandidates, long pendingUsers,
+                            long totalElections, long activeElections, long completedElections) {
+            this.totalUsers = totalUsers;
+            this.totalCandidates = totalCandidates;
+            this.pendingUsers = pendingUsers;
+            this.totalElections = totalElections;
+            this.activeElections = activeElections;
+            this.completedElections = completedElections;
+        }
+
+        // Getters
+        public long getTotalUsers() { return totalUsers; }
+        public long getTotalCandidates() { return totalCandidates; }
+        public long getPendingUsers() { return pendingUsers; }
+        public long getTotalElections() { return totalElections; }
+        public long getActiveElections() { return activeElections; }
+        public long getCompletedElections() { return completedElections; }
+    }
+}
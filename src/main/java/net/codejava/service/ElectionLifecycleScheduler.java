@@ -0,0 +1,184 @@
+package net.codejava.service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import com.mongodb.client.result.UpdateResult;
+
+import net.codejava.model.Election;
+import net.codejava.model.User;
+
+/**
+ * Opens and closes elections at their start and end dates.
+ *
+ * Instead of polling, the scheduler looks up the next start of a pending
+ * election and the next end of an active one, and sets a single timer for
+ * the earlier of the two. When it fires, every election due by then is moved
+ * on with one updateMulti per transition, voting is opened or closed to
+ * match, and the timer is set for the next boundary. Every run also hands
+ * VoteService the ids of the active elections, which votes are recorded in.
+ *
+ * ElectionService replans after every change to an election. A replan every
+ * vote.elections.replan-ms also catches elections edited directly in Mongo.
+ */
+@Service
+public class ElectionLifecycleScheduler {
+
+    @Value("${vote.elections.replan-ms:300000}")
+    private long replanMs;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private VoteService voteService;
+
+    @Autowired
+    private TallyVersion tallyVersion;
+
+    @Autowired
+    private ElectionStatsService electionStatsService;
+
+    private ScheduledExecutorService timer;
+
+    // Only touched on the timer thread
+    private ScheduledFuture<?> nextTransition;
+
+    @PostConstruct
+    private void start() {
+        timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "election-lifecycle");
+            t.setDaemon(true);
+            return t;
+        });
+        // Catches up on transitions missed while the application was down
+        timer.execute(this::tick);
+        timer.scheduleWithFixedDelay(this::tick, replanMs, replanMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    private void stop() {
+        timer.shutdownNow();
+    }
+
+    /**
+     * Applies anything now due and replans, after an election was created, edited or removed.
+     */
+    public void electionsChanged() {
+        timer.execute(this::tick);
+    }
+
+    private void tick() {
+        try {
+            applyDueTransitions();
+        } catch (Exception e) {
+            System.err.println("[ELECTIONS] Failed to apply election transitions: " + e.getMessage());
+        }
+        try {
+            publishOpenElections();
+        } catch (Exception e) {
+            System.err.println("[ELECTIONS] Failed to load open elections: " + e.getMessage());
+        }
+        try {
+            planNext();
+        } catch (Exception e) {
+            System.err.println("[ELECTIONS] Failed to plan next election transition: " + e.getMessage());
+        }
+    }
+
+    private void applyDueTransitions() {
+        LocalDateTime now = LocalDateTime.now();
+
+        UpdateResult activated = mongoTemplate.updateMulti(
+                new Query(Criteria.where("status").is(Election.ElectionStatus.PENDING).and("startDate").lte(now)),
+                new Update().set("status", Election.ElectionStatus.ACTIVE).set("updatedAt", now),
+                Election.class);
+        UpdateResult completed = mongoTemplate.updateMulti(
+                new Query(Criteria.where("status").is(Election.ElectionStatus.ACTIVE).and("endDate").lte(now)),
+                new Update().set("status", Election.ElectionStatus.COMPLETED).set("updatedAt", now),
+                Election.class);
+        if (activated.getModifiedCount() == 0 && completed.getModifiedCount() == 0) {
+            return;
+        }
+        tallyVersion.bump();
+        electionStatsService.invalidate();
+        System.out.println("[ELECTIONS] Opened " + activated.getModifiedCount() + " and closed "
+                + completed.getModifiedCount() + " elections at " + now);
+
+        boolean open = mongoTemplate.exists(
+                new Query(Criteria.where("status").is(Election.ElectionStatus.ACTIVE)), Election.class);
+        if (open != voteService.isVotingActive()) {
+            voteService.setVotingActive(open);
+            // Same votestatus codes as the admin's start and end vote actions
+            mongoTemplate.updateFirst(new Query(Criteria.where("username").is("admin")),
+                    new Update().set("votestatus", open ? "1" : "2"), User.class);
+            System.out.println("[ELECTIONS] Voting " + (open ? "opened" : "closed"));
+        }
+    }
+
+    // Tells VoteService which elections accept votes
+    private void publishOpenElections() {
+        Query query = new Query(Criteria.where("status").is(Election.ElectionStatus.ACTIVE));
+        query.fields().include("_id");
+        List<String> open = new ArrayList<>();
+        for (Election election : mongoTemplate.find(query, Election.class)) {
+            open.add(election.getId());
+        }
+        voteService.setOpenElections(open);
+    }
+
+    private void planNext() {
+        if (nextTransition != null) {
+            nextTransition.cancel(false);
+            nextTransition = null;
+        }
+        LocalDateTime next = earliest(
+                nextDate(Election.ElectionStatus.PENDING, "startDate"),
+                nextDate(Election.ElectionStatus.ACTIVE, "endDate"));
+        if (next == null) {
+            return;
+        }
+        long delayMs = Math.max(0, Duration.between(LocalDateTime.now(), next).toMillis());
+        nextTransition = timer.schedule(this::tick, delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    private LocalDateTime nextDate(Election.ElectionStatus status, String field) {
+        Query query = new Query(Criteria.where("status").is(status).and(field).ne(null))
+                .with(Sort.by(Sort.Direction.ASC, field))
+                .limit(1);
+        query.fields().include(field);
+        Election election = mongoTemplate.findOne(query, Election.class);
+        if (election == null) {
+            return null;
+        }
+        return "startDate".equals(field) ? election.getStartDate() : election.getEndDate();
+    }
+
+    private static LocalDateTime earliest(LocalDateTime a, LocalDateTime b) {
+        if (a == null) {
+            return b;
+        }
+        if (b == null) {
+            return a;
+        }
+        return a.isBefore(b) ? a : b;
+    }
+}
@@ -0,0 +1,226 @@
+package net.codejava.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.util.CloseableIterator;
+import org.springframework.stereotype.Service;
+
+import net.codejava.helper.HashEngine;
+import net.codejava.helper.IncrementalMerkleTree;
+import net.codejava.helper.MerkleTree;
+import net.codejava.model.Votedata;
+
+/**
+ * Keeps a Merkle tree over the block hashes of every vote in an election and
+ * answers inclusion proofs for any of them. Each election has its own tree,
+ * built from its own chain; votes without an election share DEFAULT_ELECTION.
+ *
+ * Leaves are appended in chain sequence order. Votes that commit out of
+ * order wait until the sequences before them have arrived, so the tree is
+ * the same after a restart rebuilds it from votedata. Sequences whose vote
+ * was never saved are skipped. Votes written before sequencing are not in
+ * the tree.
+ */
+@Service
+public class ElectionMerkleService {
+
+    // Tree of the votes cast without an election
+    public static final String DEFAULT_ELECTION = "default";
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private ChainHeadSequencer chainHeadSequencer;
+
+    private final Map<String, ElectionTree> trees = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    private void load() {
+        try {
+            // One pass over every sequenced vote, election by election
+            // Void blocks are skipped as they are at runtime
+            Query query = new Query(Criteria.where("sequence").gt(0).and("voidedData").exists(false))
+                    .with(Sort.by(Sort.Direction.ASC, "electionId", "sequence"));
+            query.fields().include("electionId").include("sequence").include("currhash");
+            try (CloseableIterator<Votedata> votes = mongoTemplate.stream(query, Votedata.class)) {
+                while (votes.hasNext()) {
+                    Votedata vote = votes.next();
+                    tree(key(vote.getElectionId())).tree.append(MerkleTree.leaf(vote.getCurrhash()));
+                }
+            }
+            for (Map.Entry<String, ElectionTree> entry : trees.entrySet()) {
+                entry.getValue().nextSequence = chainHeadSequencer.getSequence(electionId(entry.getKey())) + 1;
+                System.out.println("[MERKLE] Rebuilt tree of election " + entry.getKey() + " with "
+                        + entry.getValue().tree.size() + " votes");
+            }
+        } catch (Exception e) {
+            System.err.println("[MERKLE] Failed to rebuild election trees: " + e.getMessage());
+            trees.clear();
+        }
+        if (!trees.containsKey(DEFAULT_ELECTION)) {
+            ElectionTree tree = new ElectionTree();
+            tree.nextSequence = chainHeadSequencer.getSequence() + 1;
+            trees.put(DEFAULT_ELECTION, tree);
+        }
+    }
+
+    /**
+     * Adds a committed vote to its election's tree.
+     */
+    public void voteCommitted(Votedata vote) {
+        tree(key(vote.getElectionId())).add(vote.getSequence(), MerkleTree.leaf(vote.getCurrhash()));
+    }
+
+    /**
+     * Marks a sequence of an election's chain whose vote will never be saved,
+     * so later votes don't wait for it.
+     */
+    public void sequenceSkipped(String electionId, long sequence) {
+        tree(key(electionId)).skip(sequence);
+    }
+
+    /**
+     * Inclusion proof for a vote's block hash against the current root of its
+     * election's tree, or null if the vote isn't in the tree (yet).
+     */
+    public Proof getProof(String voteHash) {
+        if (voteHash == null) {
+            return null;
+        }
+        Query query = new Query(Criteria.where("currhash").is(voteHash));
+        query.fields().include("electionId");
+        Votedata vote = mongoTemplate.findOne(query, Votedata.class);
+        if (vote == null) {
+            return null;
+        }
+        return getProof(key(vote.getElectionId()), voteHash);
+    }
+
+    public Proof getProof(String electionId, String voteHash) {
+        ElectionTree election = trees.get(electionId);
+        if (election == null || voteHash == null) {
+            return null;
+        }
+        byte[] leaf = MerkleTree.leaf(voteHash);
+        synchronized (election) {
+            int index = election.tree.indexOf(leaf);
+            if (index < 0) {
+                return null;
+            }
+            return new Proof(electionId, voteHash, HashEngine.toHex(leaf), index, election.tree.size(),
+                    HashEngine.toHex(election.tree.getRoot()), election.tree.getProof(index));
+        }
+    }
+
+    public String getRoot(String electionId) {
+        ElectionTree election = trees.get(electionId);
+        if (election == null) {
+            return null;
+        }
+        synchronized (election) {
+            byte[] root = election.tree.getRoot();
+            return root == null ? null : HashEngine.toHex(root);
+        }
+    }
+
+    /**
+     * Starts every tree over, used when all votes are cleared.
+     */
+    public void reset() {
+        ElectionTree tree = new ElectionTree();
+        tree.nextSequence = chainHeadSequencer.getSequence() + 1;
+        trees.clear();
+        trees.put(DEFAULT_ELECTION, tree);
+    }
+
+    // Chains start at sequence 1, so a tree created on first use needs no head lookup
+    private ElectionTree tree(String key) {
+        return trees.computeIfAbsent(key, id -> new ElectionTree());
+    }
+
+    private static String key(String electionId) {
+        return electionId == null ? DEFAULT_ELECTION : electionId;
+    }
+
+    private static String electionId(String key) {
+        return DEFAULT_ELECTION.equals(key) ? null : key;
+    }
+
+    private static final class ElectionTree {
+        private final IncrementalMerkleTree tree = new IncrementalMerkleTree();
+        private final TreeMap<Long, byte[]> waiting = new TreeMap<>();
+        private final TreeSet<Long> skipped = new TreeSet<>();
+        private long nextSequence = 1;
+
+        synchronized void add(long sequence, byte[] leaf) {
+            if (sequence < nextSequence) {
+                return;
+            }
+            waiting.put(sequence, leaf);
+            drain();
+        }
+
+        synchronized void skip(long sequence) {
+            if (sequence >= nextSequence) {
+                skipped.add(sequence);
+                drain();
+            }
+        }
+
+        private void drain() {
+            while (true) {
+                byte[] leaf = waiting.remove(nextSequence);
+                if (leaf != null) {
+                    tree.append(leaf);
+                } else if (!skipped.remove(nextSequence)) {
+                    return;
+                }
+                nextSequence++;
+            }
+        }
+    }
+
+    // Everything a client needs to check the vote against the root with
+    // MerkleTree.computeRoot; leaf is sha256(0x00 || voteHash)
+    public static class Proof {
+        private final String electionId;
+        private final String voteHash;
+        private final String leaf;
+        private final int leafIndex;
+        private final int leafCount;
+        private final String root;
+        private final List<String> siblings;
+
+        public Proof(String electionId, String voteHash, String leaf, int leafIndex, int leafCount, String root,
+                List<String> siblings) {
+            this.electionId = electionId;
+            this.voteHash = voteHash;
+            this.leaf = leaf;
+            this.leafIndex = leafIndex;
+            this.leafCount = leafCount;
+            this.root = root;
+            this.siblings = new ArrayList<>(siblings);
+        }
+
+        public String getElectionId() { return electionId; }
+        public String getVoteHash() { return voteHash; }
+        public String getLeaf() { return leaf; }
+        public int getLeafIndex() { return leafIndex; }
+        public int getLeafCount() { return leafCount; }
+        public String getRoot() { return root; }
+        public List<String> getSiblings() { return siblings; }
+    }
+}
@@ -3,7 +3,6 @@ package net.codejava.service;
 import net.codejava.model.Election;
 import net.codejava.repository.ElectionRepo;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
@@ -15,13 +14,25 @@ public class ElectionService {
     
     @Autowired
     private ElectionRepo electionRepo;
+
+    // Opens and closes elections at their start and end dates
+    @Autowired
+    private ElectionLifecycleScheduler lifecycleScheduler;
+
+    // Cached per-status counts, dropped after every write below
+    @Autowired
+    private ElectionStatsService electionStatsService;
     
     // Create new election
     public Election createElection(Election election) {
+        ProofOfWorkService.checkDifficulty(election.getPowDifficulty());
         election.setStatus(Election.ElectionStatus.PENDING);
         election.setCreatedAt(LocalDateTime.now());
         election.setUpdatedAt(LocalDateTime.now());
-        return electionRepo.save(election);
+        Election saved = electionRepo.save(election);
+        electionStatsService.invalidate();
+        lifecycleScheduler.electionsChanged();
+        return saved;
     }
     
     // Get election by ID
@@ -46,13 +57,19 @@ public class ElectionService {
     
     // Update election
     public Election updateElection(Election election) {
+        ProofOfWorkService.checkDifficulty(election.getPowDifficulty());
         election.setUpdatedAt(LocalDateTime.now());
-        return electionRepo.save(election);
+        Election saved = electionRepo.save(election);
+        electionStatsService.invalidate();
+        lifecycleScheduler.electionsChanged();
+        return saved;
     }
     
     // Delete election
     public void deleteElection(String id) {
         electionRepo.deleteById(id);
+        electionStatsService.invalidate();
+        lifecycleScheduler.electionsChanged();
     }
     
     // Activate election
@@ -62,7 +79,10 @@ public class ElectionService {
             Election election = electionOpt.get();
             election.setStatus(Election.ElectionStatus.ACTIVE);
             election.setUpdatedAt(LocalDateTime.now());
-            return electionRepo.save(election);
+            Election saved = electionRepo.save(election);
+            electionStatsService.invalidate();
+            lifecycleScheduler.electionsChanged();
+            return saved;
         }
         return null;
     }
@@ -74,7 +94,10 @@ public class ElectionService {
             Election election = electionOpt.get();
             election.setStatus(Election.ElectionStatus.COMPLETED);
             election.setUpdatedAt(LocalDateTime.now());
-            return electionRepo.save(election);
+            Election saved = electionRepo.save(election);
+            electionStatsService.invalidate();
+            lifecycleScheduler.electionsChanged();
+            return saved;
         }
         return null;
     }
@@ -86,7 +109,10 @@ public class ElectionService {
             Election election = electionOpt.get();
             election.setStatus(Election.ElectionStatus.CANCELLED);
             election.setUpdatedAt(LocalDateTime.now());
-            return electionRepo.save(election);
+            Election saved = electionRepo.save(election);
+            electionStatsService.invalidate();
+            lifecycleScheduler.electionsChanged();
+            return saved;
         }
         return null;
     }
@@ -98,35 +124,7 @@ public class ElectionService {
     
     // Get election statistics
     public ElectionStats getElectionStats() {
-        long totalElections = electionRepo.count();
-        long pendingElections = electionRepo.countByStatus(Election.ElectionStatus.PENDING);
-        long activeElections = electionRepo.countByStatus(Election.ElectionStatus.ACTIVE);
-        long completedElections = electionRepo.countByStatus(Election.ElectionStatus.COMPLETED);
-        long cancelledElections = electionRepo.countByStatus(Election.ElectionStatus.CANCELLED);
-        
-        return new ElectionStats(totalElections, pendingElections, activeElections, completedElections, cancelledElections);
-    }
-    
-    // Scheduled task to automatically update election statuses
-    @Scheduled(fixedRate = 60000) // Run every minute
-    public void updateElectionStatuses() {
-        LocalDateTime now = LocalDateTime.now();
-        
-        // Activate elections that should start
-        List<Election> electionsToActivate = electionRepo.findElectionsToActivate(now);
-        for (Election election : electionsToActivate) {
-            election.setStatus(Election.ElectionStatus.ACTIVE);
-            election.setUpdatedAt(now);
-            electionRepo.save(election);
-        }
-        
-        // Complete elections that should end
-        List<Election> electionsToComplete = electionRepo.findElectionsToComplete(now);
-        for (Election election : electionsToComplete) {
-            election.setStatus(Election.ElectionStatus.COMPLETED);
-            election.setUpdatedAt(now);
-            electionRepo.save(election);
-        }
+        return electionStatsService.getStats();
     }
     
     // Inner class for election statistics
@@ -0,0 +1,73 @@
+package net.codejava.service;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PostConstruct;
+
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.stereotype.Service;
+
+import net.codejava.helper.CoalescingCache;
+import net.codejava.model.Election;
+
+/**
+ * Election counts per status, from one $group aggregation.
+ *
+ * The result is cached until an election changes: ElectionService and the
+ * lifecycle scheduler call invalidate() after every write. It is also
+ * reloaded after vote.elections.stats-max-age-ms, for edits made outside
+ * the application.
+ */
+@Service
+public class ElectionStatsService {
+
+    @Value("${vote.elections.stats-max-age-ms:60000}")
+    private long maxAgeMs;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    private final AtomicLong version = new AtomicLong();
+    private CoalescingCache<ElectionService.ElectionStats> cache;
+
+    @PostConstruct
+    private void init() {
+        cache = new CoalescingCache<>(this::load, version::get, 0, maxAgeMs);
+    }
+
+    public ElectionService.ElectionStats getStats() {
+        return cache.get().getValue();
+    }
+
+    public void invalidate() {
+        version.incrementAndGet();
+    }
+
+    private ElectionService.ElectionStats load() {
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.group("status").count().as("count"));
+        long total = 0;
+        long[] byStatus = new long[Election.ElectionStatus.values().length];
+        for (Document row : mongoTemplate.aggregate(aggregation, Election.class, Document.class)) {
+            long count = ((Number) row.get("count")).longValue();
+            total += count;
+            Object status = row.get("_id");
+            if (status != null) {
+                try {
+                    byStatus[Election.ElectionStatus.valueOf(status.toString()).ordinal()] += count;
+                } catch (IllegalArgumentException e) {
+                    // Unknown status, only counted in the total like count() did
+                }
+            }
+        }
+        return new ElectionService.ElectionStats(total,
+                byStatus[Election.ElectionStatus.PENDING.ordinal()],
+                byStatus[Election.ElectionStatus.ACTIVE.ordinal()],
+                byStatus[Election.ElectionStatus.COMPLETED.ordinal()],
+                byStatus[Election.ElectionStatus.CANCELLED.ordinal()]);
+    }
+}
@@ -3,16 +3,40 @@ package net.codejava.service;
 import net.codejava.model.FaceData;
 import net.codejava.repository.FaceDataRepo;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.aggregation.ArrayOperators;
+import org.springframework.data.mongodb.core.aggregation.ConditionalOperators;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.util.CloseableIterator;
 import org.springframework.stereotype.Service;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 
 @Service
 public class FaceDataService {
     
+    // Lines written between flushes of a streamed listing
+    private static final int FLUSH_EVERY = 500;
+    
     @Autowired
     private FaceDataRepo faceDataRepo;
     
+    @Autowired
+    private MongoTemplate mongoTemplate;
+    
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    
     /**
      * Save face data to MongoDB
      */
@@ -35,6 +59,61 @@ public class FaceDataService {
         return faceDataRepo.findByUsername(username);
     }
     
+    /**
+     * Metadata of a user's face data, newest first, without images or encodings
+     */
+    public List<FaceMetadata> getFaceMetadataByUsername(String username) {
+        List<FaceMetadata> metadata = new ArrayList<>();
+        try (CloseableIterator<FaceMetadata> rows = streamMetadata(username)) {
+            rows.forEachRemaining(metadata::add);
+        }
+        return metadata;
+    }
+    
+    /**
+     * Writes the metadata of every face record as NDJSON, one object per line.
+     * Rows come from a Mongo cursor and are written as they arrive, so memory
+     * use doesn't grow with the collection.
+     */
+    public long writeMetadataNdjson(OutputStream out) throws IOException {
+        long written = 0;
+        try (CloseableIterator<FaceMetadata> rows = streamMetadata(null)) {
+            while (rows.hasNext()) {
+                out.write(objectMapper.writeValueAsBytes(rows.next()));
+                out.write('\n');
+                if (++written % FLUSH_EVERY == 0) {
+                    out.flush();
+                }
+            }
+        }
+        out.flush();
+        return written;
+    }
+    
+    // Image and encoding are reduced to an encoding length on the server, never sent to the JVM
+    private CloseableIterator<FaceMetadata> streamMetadata(String username) {
+        List<AggregationOperation> stages = new ArrayList<>();
+        if (username != null) {
+            stages.add(Aggregation.match(Criteria.where("username").is(username)));
+        }
+        stages.add(Aggregation.sort(Sort.by(Sort.Order.asc("username"), Sort.Order.desc("timestamp"))));
+        stages.add(Aggregation.project("username", "imageType", "timestamp")
+                .and(ArrayOperators.Size.lengthOfArray(
+                        ConditionalOperators.ifNull("faceEncoding").then(Collections.emptyList())))
+                .as("encodingLength"));
+        return mongoTemplate.aggregateStream(Aggregation.newAggregation(stages), FaceData.class, FaceMetadata.class);
+    }
+    
+    /**
+     * Only the image of a face record: its base64 string and type, or empty if there is none
+     */
+    public Optional<FaceData> getFaceImage(String id) {
+        Query query = new Query(Criteria.where("_id").is(id));
+        query.fields().include("faceImageBase64").include("imageType");
+        return Optional.ofNullable(mongoTemplate.findOne(query, FaceData.class))
+                .filter(face -> face.getFaceImageBase64() != null && !face.getFaceImageBase64().isEmpty());
+    }
+    
     /**
      * Get the most recent face data for a user
      */
@@ -87,10 +166,23 @@ public class FaceDataService {
         faceDataRepo.deleteById(id);
     }
     
-    /**
-     * Get all face data
-     */
-    public List<FaceData> getAllFaceData() {
-        return faceDataRepo.findAll();
+    // A face record without its image and encoding; the image is fetched from imageUrl
+    public static class FaceMetadata {
+        @Id
+        private String id;
+        private String username;
+        private String imageType;
+        private long timestamp;
+        private int encodingLength;
+        
+        public String getId() { return id; }
+        public String getUsername() { return username; }
+        public String getImageType() { return imageType; }
+        public long getTimestamp() { return timestamp; }
+        
+        @JsonProperty("hasEncoding")
+        public boolean hasEncoding() { return encodingLength > 0; }
+        
+        public String getImageUrl() { return "/api/face/" + id + "/image"; }
     }
 }
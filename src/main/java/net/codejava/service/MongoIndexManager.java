@@ -0,0 +1,211 @@
+package net.codejava.service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.annotation.PostConstruct;
+
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.convert.QueryMapper;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.IndexResolver;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import net.codejava.model.Candidate;
+import net.codejava.model.Election;
+import net.codejava.model.ElectionTally;
+import net.codejava.model.FaceData;
+import net.codejava.model.Pending;
+import net.codejava.model.User;
+import net.codejava.model.VoteOutbox;
+import net.codejava.model.Votedata;
+
+/**
+ * Creates the indexes declared on the models and checks that the hot queries use them.
+ *
+ * Indexes are declared with @Indexed and @CompoundIndex next to the fields
+ * they cover. At startup every declared index is ensured explicitly, so
+ * they exist even where automatic index creation is turned off. An index
+ * that can't be built, such as a unique one over duplicate data, is reported
+ * and skipped.
+ *
+ * Each query on a hot path is then explained, mapped the same way the
+ * repositories map it. A winning plan that scans the whole collection is
+ * reported, or stops startup when vote.indexes.fail-on-collscan is set.
+ */
+@Service
+public class MongoIndexManager {
+
+    private static final List<Class<?>> INDEXED_TYPES = Arrays.asList(
+            Votedata.class, User.class, Pending.class, Candidate.class, FaceData.class,
+            Election.class, ElectionTally.class, VoteOutbox.class);
+
+    @Value("${vote.indexes.verify-plans:true}")
+    private boolean verifyPlans;
+
+    @Value("${vote.indexes.fail-on-collscan:false}")
+    private boolean failOnCollscan;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @PostConstruct
+    private void start() {
+        List<String> scans;
+        try {
+            ensureIndexes();
+            if (!verifyPlans) {
+                return;
+            }
+            scans = findCollectionScans();
+        } catch (Exception e) {
+            System.err.println("[INDEX] Could not check indexes: " + e.getMessage());
+            return;
+        }
+        if (scans.isEmpty()) {
+            System.out.println("[INDEX] All " + plannedQueries().size() + " checked queries use an index");
+        } else if (failOnCollscan) {
+            throw new IllegalStateException("Queries scan whole collections: " + scans);
+        }
+    }
+
+    private void ensureIndexes() {
+        IndexResolver resolver = IndexResolver.create(mongoTemplate.getConverter().getMappingContext());
+        for (Class<?> type : INDEXED_TYPES) {
+            IndexOperations ops = mongoTemplate.indexOps(type);
+            for (IndexDefinition index : resolver.resolveIndexFor(type)) {
+                try {
+                    ops.ensureIndex(index);
+                } catch (Exception e) {
+                    System.err.println("[INDEX] Failed to create index " + index.getIndexKeys() + " on "
+                            + mongoTemplate.getCollectionName(type) + ": " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Explains every planned query and returns the names of those whose winning plan is a COLLSCAN.
+     */
+    public List<String> findCollectionScans() {
+        List<String> scans = new ArrayList<>();
+        for (PlannedQuery planned : plannedQueries()) {
+            Document plan = explain(planned);
+            if (plan != null && usesStage(plan, "COLLSCAN")) {
+                scans.add(planned.name);
+                System.err.println("[INDEX] " + planned.name + " scans the whole "
+                        + mongoTemplate.getCollectionName(planned.type) + " collection");
+            }
+        }
+        return scans;
+    }
+
+    // The queries behind the repository methods and services that run per request or per vote
+    private List<PlannedQuery> plannedQueries() {
+        LocalDateTime now = LocalDateTime.now();
+        return Arrays.asList(
+                new PlannedQuery("VoteRepo.findByUsername", Votedata.class,
+                        new Query(Criteria.where("username").is(""))),
+                new PlannedQuery("VoteRepo.findByCurrhash", Votedata.class,
+                        new Query(Criteria.where("currhash").is(""))),
+                new PlannedQuery("VoteRepo.findByTxhash", Votedata.class,
+                        new Query(Criteria.where("txhash").is(""))),
+                new PlannedQuery("VoteRepo.findTopByOrderByDateDesc", Votedata.class,
+                        new Query().with(Sort.by(Sort.Direction.DESC, "date")).limit(1)),
+                new PlannedQuery("VoteRepo.findTopBySequenceGreaterThan", Votedata.class,
+                        new Query(Criteria.where("sequence").gt(0L))
+                                .with(Sort.by(Sort.Direction.DESC, "sequence")).limit(1)),
+                new PlannedQuery("ChainHeadSequencer.newestVote", Votedata.class,
+                        new Query(Criteria.where("electionId").is("").and("sequence").gt(0L))
+                                .with(Sort.by(Sort.Direction.DESC, "sequence")).limit(1)),
+                new PlannedQuery("VoteBatchAnchorer.unbatched", Votedata.class,
+                        new Query(Criteria.where("batchId").exists(false).and("electionId").is("")
+                                .and("voidedData").exists(false))
+                                .with(Sort.by(Sort.Direction.ASC, "sequence")).limit(1)),
+                new PlannedQuery("VoteBatchAnchorer.claimed", Votedata.class,
+                        new Query(Criteria.where("batchId").is("")).with(Sort.by(Sort.Direction.ASC, "sequence"))),
+                new PlannedQuery("VoterRegistry.hasVoted", Votedata.class,
+                        new Query(Criteria.where("electionId").is("").and("username").is(""))),
+                new PlannedQuery("UserRepo.findByUsername", User.class,
+                        new Query(Criteria.where("username").is(""))),
+                new PlannedQuery("PendingRepo.findByUsername", Pending.class,
+                        new Query(Criteria.where("username").is(""))),
+                new PlannedQuery("CandidateRepo.findByParty", Candidate.class,
+                        new Query(Criteria.where("party").is(""))),
+                new PlannedQuery("FaceDataRepo.findTopByUsernameOrderByTimestampDesc", FaceData.class,
+                        new Query(Criteria.where("username").is(""))
+                                .with(Sort.by(Sort.Direction.DESC, "timestamp")).limit(1)),
+                new PlannedQuery("ElectionRepo.findActiveElections", Election.class,
+                        new Query(Criteria.where("status").is(Election.ElectionStatus.ACTIVE)
+                                .and("startDate").lte(now).and("endDate").gte(now))),
+                new PlannedQuery("ElectionLifecycleScheduler.due", Election.class,
+                        new Query(Criteria.where("status").is(Election.ElectionStatus.PENDING).and("startDate").lte(now))),
+                new PlannedQuery("VoteOutboxWorker.due", VoteOutbox.class,
+                        new Query(Criteria.where("status").is(VoteOutbox.Status.PENDING).and("nextAttemptAt").lte(now))));
+    }
+
+    // Winning plan of the query, or null when the collection doesn't exist yet
+    private Document explain(PlannedQuery planned) {
+        String collection = mongoTemplate.getCollectionName(planned.type);
+        if (!mongoTemplate.collectionExists(collection)) {
+            return null;
+        }
+        MongoPersistentEntity<?> entity = mongoTemplate.getConverter().getMappingContext()
+                .getPersistentEntity(planned.type);
+        QueryMapper mapper = new QueryMapper(mongoTemplate.getConverter());
+        Document find = new Document("find", collection)
+                .append("filter", mapper.getMappedObject(planned.query.getQueryObject(), entity));
+        if (!planned.query.getSortObject().isEmpty()) {
+            find.append("sort", mapper.getMappedSort(planned.query.getSortObject(), entity));
+        }
+        if (planned.query.getLimit() > 0) {
+            find.append("limit", planned.query.getLimit());
+        }
+        Document result = mongoTemplate.getDb().runCommand(
+                new Document("explain", find).append("verbosity", "queryPlanner"));
+        Document queryPlanner = result.get("queryPlanner", Document.class);
+        return queryPlanner == null ? null : queryPlanner.get("winningPlan", Document.class);
+    }
+
+    // Plans are trees of stages linked through inputStage and inputStages
+    private static boolean usesStage(Document plan, String stage) {
+        if (stage.equals(plan.getString("stage"))) {
+            return true;
+        }
+        Object input = plan.get("inputStage");
+        if (input instanceof Document && usesStage((Document) input, stage)) {
+            return true;
+        }
+        Object inputs = plan.get("inputStages");
+        if (inputs instanceof List) {
+            for (Object child : (List<?>) inputs) {
+                if (child instanceof Document && usesStage((Document) child, stage)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static final class PlannedQuery {
+        private final String name;
+        private final Class<?> type;
+        private final Query query;
+
+        private PlannedQuery(String name, Class<?> type, Query query) {
+            this.name = name;
+            this.type = type;
+            this.query = query;
+        }
+    }
+}
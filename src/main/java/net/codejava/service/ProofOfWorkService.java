@@ -0,0 +1,165 @@
+package net.codejava.service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import net.codejava.helper.NonceSearch;
+import net.codejava.model.Block;
+import net.codejava.model.Election;
+import net.codejava.repository.ElectionRepo;
+
+/**
+ * Optional proof-of-work for vote blocks.
+ *
+ * Off by default. When enabled, each block is mined on a dedicated ForkJoin
+ * pool to the difficulty of the election it belongs to
+ * (Election.powDifficulty), or vote.pow.default-bits if the election doesn't
+ * set one or the vote has no election. Raising the difficulty makes
+ * rewriting the chain costlier but adds latency to every vote, roughly
+ * 2^bits hashes per block, so it is capped at MAX_DIFFICULTY_BITS.
+ */
+@Service
+public class ProofOfWorkService {
+
+    // 2^24 hashes is already seconds per vote on a typical server
+    public static final int MAX_DIFFICULTY_BITS = 24;
+
+    @Value("${vote.pow.enabled:false}")
+    private boolean enabled;
+
+    @Value("${vote.pow.default-bits:16}")
+    private int defaultBits;
+
+    @Value("${vote.pow.threads:0}")
+    private int threads;
+
+    @Value("${vote.pow.difficulty-refresh-ms:5000}")
+    private long difficultyRefreshMs;
+
+    @Autowired
+    private ElectionRepo electionRepo;
+
+    private ForkJoinPool pool;
+
+    // Difficulty per election id, each re-read at most every difficulty-refresh-ms
+    private final Map<String, CachedBits> cachedBits = new ConcurrentHashMap<>();
+    private volatile double lastHashRate;
+
+    @PostConstruct
+    private void start() {
+        if (!enabled) {
+            return;
+        }
+        int parallelism = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        pool = new ForkJoinPool(parallelism, p -> {
+            ForkJoinWorkerThread t = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+            t.setName("pow-miner-" + t.getPoolIndex());
+            t.setDaemon(true);
+            return t;
+        }, null, false);
+        System.out.println("[POW] Proof-of-work enabled on " + parallelism + " threads");
+    }
+
+    @PreDestroy
+    private void stop() {
+        if (pool != null) {
+            pool.shutdownNow();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Leading zero bits required for blocks without an election, 0 when
+     * proof-of-work is off.
+     */
+    public int getDifficultyBits() {
+        return getDifficultyBits(null);
+    }
+
+    /**
+     * Leading zero bits required for new blocks of the election, 0 when
+     * proof-of-work is off. Read from the election at most every
+     * difficulty-refresh-ms.
+     */
+    public int getDifficultyBits(String electionId) {
+        if (!enabled) {
+            return 0;
+        }
+        if (electionId == null) {
+            return clamp(defaultBits);
+        }
+        long now = System.currentTimeMillis();
+        CachedBits cached = cachedBits.get(electionId);
+        if (cached == null || now - cached.loadedAt > difficultyRefreshMs) {
+            cached = new CachedBits(loadDifficultyBits(electionId), now);
+            cachedBits.put(electionId, cached);
+        }
+        return cached.bits;
+    }
+
+    /**
+     * Rejects an election difficulty outside 0..MAX_DIFFICULTY_BITS; null
+     * means the default.
+     */
+    public static void checkDifficulty(Integer bits) {
+        if (bits != null && (bits < 0 || bits > MAX_DIFFICULTY_BITS)) {
+            throw new IllegalArgumentException("Proof-of-work difficulty must be between 0 and "
+                    + MAX_DIFFICULTY_BITS + " bits, got " + bits);
+        }
+    }
+
+    /**
+     * Mines the block in place. Does nothing for a difficulty of 0.
+     */
+    public void mine(Block block, int difficultyBits) {
+        if (difficultyBits <= 0) {
+            return;
+        }
+        NonceSearch.Result result = block.mine(difficultyBits, pool);
+        lastHashRate = result.getHashesPerSecond();
+        System.out.println("[POW] Mined block at " + difficultyBits + " bits with nonce " + result.getNonce()
+                + " in " + result.getNanos() / 1_000_000 + " ms (" + Math.round(lastHashRate) + " H/s)");
+    }
+
+    public double getLastHashRate() {
+        return lastHashRate;
+    }
+
+    private int loadDifficultyBits(String electionId) {
+        try {
+            Election election = electionRepo.findById(electionId).orElse(null);
+            return clamp(election != null && election.getPowDifficulty() != null
+                    ? election.getPowDifficulty() : defaultBits);
+        } catch (Exception e) {
+            System.err.println("[POW] Failed to read difficulty of election " + electionId + ": " + e.getMessage());
+            return clamp(defaultBits);
+        }
+    }
+
+    // Elections saved before the limit, or a large default, can't stall voting
+    private static int clamp(int bits) {
+        return Math.max(0, Math.min(bits, MAX_DIFFICULTY_BITS));
+    }
+
+    private static final class CachedBits {
+        private final int bits;
+        private final long loadedAt;
+
+        private CachedBits(int bits, long loadedAt) {
+            this.bits = bits;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
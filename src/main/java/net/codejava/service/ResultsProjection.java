@@ -0,0 +1,355 @@
+package net.codejava.service;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import net.codejava.model.Candidate;
+import net.codejava.model.ElectionTally;
+import net.codejava.repository.CandidateRepo;
+
+/**
+ * Election results kept in memory, so result pages don't reload and re-sum
+ * every candidate per view.
+ *
+ * Results are kept per election, and votes without an election (a null
+ * electionId) are kept apart from all of them, so no count or leader ever
+ * mixes elections. Counts are read from Mongo once at startup and then
+ * advanced by each committed vote. A publisher thread turns the counts of
+ * each election that changed into an immutable, versioned Snapshot at most
+ * vote.results.max-updates-per-second times a second, and pushes it to that
+ * election's SSE subscribers. Votes in between are coalesced into the next
+ * snapshot, so a burst of ballots costs one publish, not one per vote.
+ *
+ * Candidate changes only reload the candidate list; counts of parties
+ * already tracked are kept, as Mongo may be behind votes in flight.
+ */
+@Service
+public class ResultsProjection {
+
+    private static final String EVENT_NAME = "results";
+
+    // Key of votes without an election; map keys can't be null
+    private static final String NO_ELECTION = "";
+
+    @Value("${vote.results.max-updates-per-second:4}")
+    private int maxUpdatesPerSecond;
+
+    @Value("${vote.results.sse-timeout-ms:1800000}")
+    private long sseTimeoutMs;
+
+    @Autowired
+    private CandidateRepo candidateRepo;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    // Election key, then party
+    private final Map<String, Map<String, LongAdder>> counts = new ConcurrentHashMap<>();
+    private final Map<String, Snapshot> snapshots = new ConcurrentHashMap<>();
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    private final Set<String> dirty = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean reloadPending = new AtomicBoolean();
+
+    private volatile List<Candidate> candidates = Collections.emptyList();
+    private ScheduledExecutorService publisher;
+
+    @PostConstruct
+    private void start() {
+        loadCandidates(true);
+        counts.computeIfAbsent(NO_ELECTION, k -> new ConcurrentHashMap<>());
+        long totalVotes = 0;
+        for (String key : counts.keySet()) {
+            Snapshot built = buildSnapshot(key, 1);
+            snapshots.put(key, built);
+            totalVotes += built.getTotalVotes();
+        }
+
+        long intervalMs = 1000L / Math.max(1, maxUpdatesPerSecond);
+        publisher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "results-publisher");
+            t.setDaemon(true);
+            return t;
+        });
+        publisher.scheduleWithFixedDelay(this::publish, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+        System.out.println("[RESULTS] Tracking " + candidates.size() + " candidates in " + snapshots.size()
+                + " result sets, " + totalVotes + " votes, publishing every " + intervalMs + " ms");
+    }
+
+    @PreDestroy
+    private void stop() {
+        publisher.shutdownNow();
+        for (Subscriber subscriber : subscribers) {
+            subscriber.emitter.complete();
+        }
+    }
+
+    /**
+     * Counts a committed vote for the party in the election, or among votes
+     * without an election when electionId is null. Shows up in the next snapshot.
+     */
+    public void voteCommitted(String electionId, String party) {
+        if (party == null) {
+            return;
+        }
+        String key = key(electionId);
+        counts.computeIfAbsent(key, k -> new ConcurrentHashMap<>())
+                .computeIfAbsent(party, p -> new LongAdder()).increment();
+        dirty.add(key);
+    }
+
+    /**
+     * Reloads the candidate list on the next publish, after one was added or removed.
+     */
+    public void candidatesChanged() {
+        reloadPending.set(true);
+    }
+
+    /**
+     * Zeroes every count, used when all votes are cleared.
+     */
+    public void reset() {
+        for (Map<String, LongAdder> election : counts.values()) {
+            election.clear();
+        }
+        dirty.addAll(counts.keySet());
+        reloadPending.set(true);
+    }
+
+    /**
+     * The latest published results of the election, or of votes without an
+     * election when electionId is null. At most one publish interval behind.
+     * An election without votes yet gets empty results.
+     */
+    public Snapshot getSnapshot(String electionId) {
+        Snapshot current = snapshots.get(key(electionId));
+        // Not cached, so looking up unknown ids doesn't grow the map
+        return current != null ? current : buildSnapshot(key(electionId), 0);
+    }
+
+    /**
+     * Ids of the elections that have results, not including votes without an election.
+     */
+    public List<String> getElectionIds() {
+        List<String> ids = new ArrayList<>();
+        for (String key : snapshots.keySet()) {
+            if (!NO_ELECTION.equals(key)) {
+                ids.add(key);
+            }
+        }
+        Collections.sort(ids);
+        return ids;
+    }
+
+    /**
+     * Opens an SSE stream of the election's results, which gets the current
+     * snapshot right away and every new one after it.
+     */
+    public SseEmitter subscribe(String electionId) {
+        SseEmitter emitter = new SseEmitter(sseTimeoutMs);
+        Subscriber subscriber = new Subscriber(key(electionId), emitter);
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(e -> subscribers.remove(subscriber));
+        subscribers.add(subscriber);
+        Snapshot current = getSnapshot(electionId);
+        if (!send(emitter, current.getVersion(), current.json)) {
+            subscribers.remove(subscriber);
+        }
+        return emitter;
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    // Runs on the publisher thread only, so versions are handed out in order
+    private void publish() {
+        try {
+            boolean reload = reloadPending.getAndSet(false);
+            if (reload) {
+                loadCandidates(false);
+                dirty.addAll(counts.keySet());
+            }
+            for (String key : new ArrayList<>(dirty)) {
+                dirty.remove(key);
+                Snapshot previous = snapshots.get(key);
+                Snapshot next = buildSnapshot(key, previous == null ? 1 : previous.getVersion() + 1);
+                snapshots.put(key, next);
+                for (Subscriber subscriber : subscribers) {
+                    if (subscriber.key.equals(key) && !send(subscriber.emitter, next.getVersion(), next.json)) {
+                        subscribers.remove(subscriber);
+                    }
+                }
+            }
+        } catch (Exception e) {
+            System.err.println("[RESULTS] Failed to publish results: " + e.getMessage());
+        }
+    }
+
+    private boolean send(SseEmitter emitter, long version, String json) {
+        try {
+            emitter.send(SseEmitter.event().name(EVENT_NAME).id(String.valueOf(version)).data(json, MediaType.APPLICATION_JSON));
+            return true;
+        } catch (IOException | IllegalStateException e) {
+            // Client went away; the container completes the emitter
+            return false;
+        }
+    }
+
+    // With seedAll the stored counts replace the tracked ones; otherwise only new parties are seeded
+    private void loadCandidates(boolean seedAll) {
+        try {
+            List<Candidate> loaded = candidateRepo.findAll();
+            Map<String, Long> stored = new HashMap<>();
+            for (Candidate candidate : loaded) {
+                if (candidate.getParty() != null) {
+                    stored.put(candidate.getParty(), (long) candidate.getVoteCount());
+                }
+            }
+            seed(NO_ELECTION, stored, seedAll);
+            for (Map.Entry<String, Map<String, Long>> election : electionTallies().entrySet()) {
+                seed(election.getKey(), election.getValue(), seedAll);
+            }
+            candidates = loaded;
+        } catch (Exception e) {
+            System.err.println("[RESULTS] Failed to load candidates: " + e.getMessage());
+        }
+    }
+
+    private void seed(String key, Map<String, Long> stored, boolean seedAll) {
+        Map<String, LongAdder> election = counts.computeIfAbsent(key, k -> new ConcurrentHashMap<>());
+        for (Map.Entry<String, Long> party : stored.entrySet()) {
+            if (seedAll || !election.containsKey(party.getKey())) {
+                LongAdder count = new LongAdder();
+                count.add(party.getValue());
+                election.put(party.getKey(), count);
+            }
+        }
+    }
+
+    // Votes cast in elections are counted in election_tallies, not on the candidate
+    private Map<String, Map<String, Long>> electionTallies() {
+        Map<String, Map<String, Long>> tallies = new HashMap<>();
+        for (ElectionTally tally : mongoTemplate.findAll(ElectionTally.class)) {
+            if (tally.getElectionId() != null && tally.getParty() != null) {
+                tallies.computeIfAbsent(tally.getElectionId(), id -> new HashMap<>())
+                        .put(tally.getParty(), tally.getVoteCount());
+            }
+        }
+        return tallies;
+    }
+
+    private Snapshot buildSnapshot(String key, long version) {
+        List<Candidate> source = candidates;
+        List<Candidate> results = new ArrayList<>(source.size());
+        Map<String, LongAdder> election = counts.getOrDefault(key, Collections.emptyMap());
+        Candidate leader = null;
+        long total = 0;
+        for (Candidate candidate : source) {
+            LongAdder count = candidate.getParty() == null ? null : election.get(candidate.getParty());
+            Candidate copy = copy(candidate, count == null ? 0 : (int) count.sum());
+            total += copy.getVoteCount();
+            // Ties go to the candidate listed first
+            if (copy.getVoteCount() > 0 && (leader == null || copy.getVoteCount() > leader.getVoteCount())) {
+                leader = copy;
+            }
+            results.add(copy);
+        }
+        Snapshot next = new Snapshot(NO_ELECTION.equals(key) ? null : key, version, total,
+                Collections.unmodifiableList(results), leader);
+        try {
+            next.json = objectMapper.writeValueAsString(next);
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not serialize results", e);
+        }
+        return next;
+    }
+
+    private static String key(String electionId) {
+        return electionId == null ? NO_ELECTION : electionId;
+    }
+
+    // Snapshots hold their own copies, the repository's entities stay untouched
+    private static Candidate copy(Candidate source, int voteCount) {
+        Candidate copy = new Candidate();
+        copy.setId(source.getId());
+        copy.setUsername(source.getUsername());
+        copy.setFirstname(source.getFirstname());
+        copy.setLastname(source.getLastname());
+        copy.setParty(source.getParty());
+        copy.setPartypic(source.getPartypic());
+        copy.setCandidatepic(source.getCandiatepic());
+        copy.setCandidateImagePath(source.getCandidateImagePath());
+        copy.setVoteCount(voteCount);
+        return copy;
+    }
+
+    private static final class Subscriber {
+        private final String key;
+        private final SseEmitter emitter;
+
+        private Subscriber(String key, SseEmitter emitter) {
+            this.key = key;
+            this.emitter = emitter;
+        }
+    }
+
+    // Results of one election as of one publish; never modified after it is built
+    public static class Snapshot {
+        private final String electionId;
+        private final long version;
+        private final Date generatedAt = new Date();
+        private final long totalVotes;
+        private final List<Candidate> candidates;
+        private final Candidate leader;
+
+        // Serialized once per version and shared by every subscriber
+        private String json;
+
+        public Snapshot(String electionId, long version, long totalVotes, List<Candidate> candidates, Candidate leader) {
+            this.electionId = electionId;
+            this.version = version;
+            this.totalVotes = totalVotes;
+            this.candidates = candidates;
+            this.leader = leader;
+        }
+
+        public String getElectionId() { return electionId; }
+        public long getVersion() { return version; }
+        public Date getGeneratedAt() { return generatedAt; }
+        public long getTotalVotes() { return totalVotes; }
+        public List<Candidate> getCandidates() { return candidates; }
+        public Candidate getLeader() { return leader; }
+
+        @JsonIgnore
+        public String getLeaderParty() { return leader == null ? null : leader.getParty(); }
+    }
+}
@@ -0,0 +1,80 @@
+package net.codejava.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import net.codejava.helper.CoalescingCache;
+import net.codejava.repository.PendingRepo;
+import net.codejava.repository.UserRepo;
+import net.codejava.repository.VoteRepo;
+
+/**
+ * Cached answers for the polled stats endpoints, /admin/voting/stats and
+ * /getGraphData.
+ *
+ * Each is loaded at most once per TallyVersion change, however many
+ * dashboards poll, and concurrent pollers share the load. Values are kept at
+ * least vote.stats.min-age-ms so a steady stream of votes doesn't turn into
+ * a steady stream of queries, and at most vote.stats.max-age-ms to pick up
+ * writes the version doesn't see, e.g. from another instance.
+ */
+@Service
+public class StatsService {
+
+    @Value("${vote.stats.min-age-ms:500}")
+    private long minAgeMs;
+
+    @Value("${vote.stats.max-age-ms:10000}")
+    private long maxAgeMs;
+
+    @Autowired
+    private TallyVersion tallyVersion;
+
+    @Autowired
+    private VoteService voteService;
+
+    @Autowired
+    private UserRepo userRepo;
+
+    @Autowired
+    private PendingRepo pendingRepo;
+
+    @Autowired
+    private VoteRepo voteRepo;
+
+    private CoalescingCache<Map<String, Object>> votingStats;
+    private CoalescingCache<List<String>> graphData;
+
+    @PostConstruct
+    private void init() {
+        votingStats = new CoalescingCache<>(voteService::getVotingStatistics, tallyVersion::current, minAgeMs, maxAgeMs);
+        graphData = new CoalescingCache<>(this::loadGraphData, tallyVersion::current, minAgeMs, maxAgeMs);
+    }
+
+    public CoalescingCache.Entry<Map<String, Object>> getVotingStats() {
+        return votingStats.get();
+    }
+
+    /**
+     * Registered users, pending registrations and votes, as the admin
+     * dashboard chart reads them. The admin account and seed vote are not counted.
+     */
+    public CoalescingCache.Entry<List<String>> getGraphData() {
+        return graphData.get();
+    }
+
+    private List<String> loadGraphData() {
+        List<String> data = new ArrayList<>();
+        data.add("" + (userRepo.findUserCount() - 1L));
+        data.add("" + pendingRepo.findPendingCount());
+        data.add("" + (voteRepo.findcount() - voteRepo.countVoided() - 1));
+        return data;
+    }
+}
@@ -0,0 +1,51 @@
+package net.codejava.service;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.data.mongodb.core.mapping.event.AbstractMongoEventListener;
+import org.springframework.data.mongodb.core.mapping.event.AfterDeleteEvent;
+import org.springframework.data.mongodb.core.mapping.event.AfterSaveEvent;
+import org.springframework.stereotype.Component;
+
+/**
+ * Version number of everything the stats endpoints count: users, pending
+ * registrations, votes, candidates, elections and the chain submission
+ * backlog.
+ *
+ * Bumped by every save or delete on those collections that goes through
+ * MongoTemplate, and explicitly by code that changes them with in-place
+ * updates. Cached stats are reused for as long as it doesn't move.
+ */
+@Component
+public class TallyVersion extends AbstractMongoEventListener<Object> {
+
+    private static final Set<String> COUNTED_COLLECTIONS = new HashSet<>(
+            Arrays.asList("users", "pending", "votedata", "candidates", "vote_outbox", "elections"));
+
+    private final AtomicLong version = new AtomicLong();
+
+    public long current() {
+        return version.get();
+    }
+
+    public void bump() {
+        version.incrementAndGet();
+    }
+
+    @Override
+    public void onAfterSave(AfterSaveEvent<Object> event) {
+        if (COUNTED_COLLECTIONS.contains(event.getCollectionName())) {
+            bump();
+        }
+    }
+
+    @Override
+    public void onAfterDelete(AfterDeleteEvent<Object> event) {
+        if (COUNTED_COLLECTIONS.contains(event.getCollectionName())) {
+            bump();
+        }
+    }
+}
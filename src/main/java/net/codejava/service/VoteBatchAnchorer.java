@@ -0,0 +1,314 @@
+package net.codejava.service;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+import org.web3j.protocol.core.methods.response.TransactionReceipt;
+
+import net.codejava.helper.MerkleTree;
+import net.codejava.model.VoteBatch;
+import net.codejava.model.Votedata;
+import net.codejava.smartcontract.ReceiptPoller;
+import net.codejava.smartcontract.VotingContractService;
+
+/**
+ * Batch anchoring mode (vote.anchor.mode=batch). Instead of one transaction
+ * per ballot, committed votes are collected until the window closes or the
+ * batch fills up, a Merkle tree is built over their block hashes and only the
+ * root is sent to Voting.anchorBatch. Every vote keeps its leaf index and
+ * inclusion proof so it can be checked against the anchored root.
+ *
+ * Each batch holds the votes of one election, in that election's chain
+ * order. A batch is sealed in three steps: its document is inserted as
+ * SEALING, its votes are claimed by setting their batchId, and only then is
+ * the tree built from the claimed votes and the batch made anchorable. A vote is
+ * never in two batches, and a batch never anchors votes it doesn't hold.
+ * Batches a crash left SEALING are finished on startup from the votes they
+ * claimed.
+ *
+ * Unbatched votes and unanchored batches are found again from Mongo, so a
+ * restart picks up where the previous run stopped. A batch that is tried
+ * again is first looked up on the contract, in case an earlier attempt was
+ * mined after all.
+ */
+@Service
+public class VoteBatchAnchorer {
+
+    public static final String MODE_BATCH = "batch";
+
+    @Value("${vote.anchor.mode:single}")
+    private String mode;
+
+    @Value("${vote.anchor.batch-size:1024}")
+    private int batchSize;
+
+    @Value("${vote.anchor.window-ms:10000}")
+    private long windowMs;
+
+    @Value("${vote.anchor.retry-ms:30000}")
+    private long retryMs;
+
+    @Value("${vote.anchor.max-attempts:8}")
+    private int maxAttempts;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private VotingContractService votingContractService;
+
+    @Autowired
+    private ReceiptPoller receiptPoller;
+
+    private final AtomicInteger unbatched = new AtomicInteger();
+    private final AtomicBoolean flushQueued = new AtomicBoolean();
+    private ScheduledExecutorService scheduler;
+
+    @PostConstruct
+    private void start() {
+        if (!isBatchMode()) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "vote-batch-anchorer");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.execute(this::recoverSealing);
+        scheduler.scheduleWithFixedDelay(this::flush, windowMs, windowMs, TimeUnit.MILLISECONDS);
+        System.out.println("[ANCHOR] Batch anchoring enabled: up to " + batchSize + " votes every " + windowMs + " ms");
+    }
+
+    @PreDestroy
+    private void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    public boolean isBatchMode() {
+        return MODE_BATCH.equalsIgnoreCase(mode);
+    }
+
+    /**
+     * Called after each vote commit; closes the window early once a full batch is waiting.
+     */
+    public void voteCommitted() {
+        if (unbatched.incrementAndGet() >= batchSize && flushQueued.compareAndSet(false, true)) {
+            scheduler.execute(this::flush);
+        }
+    }
+
+    /**
+     * Drops all batches, used when the vote collection is cleared.
+     */
+    public void reset() {
+        mongoTemplate.remove(new Query(), VoteBatch.class);
+        unbatched.set(0);
+    }
+
+    // Runs on the single scheduler thread only, so batches never overlap
+    private void flush() {
+        flushQueued.set(false);
+        try {
+            retryPendingBatches();
+            for (String electionId : unbatchedElections()) {
+                while (sealNextBatch(electionId)) {
+                    // keep going while full batches are waiting
+                }
+            }
+        } catch (Exception e) {
+            System.err.println("[ANCHOR] Batch flush failed: " + e.getMessage());
+        }
+    }
+
+    // Elections with votes waiting for a batch, null standing for votes without one
+    private List<String> unbatchedElections() {
+        List<String> elections = new ArrayList<>();
+        if (mongoTemplate.exists(new Query(unbatched(null)), Votedata.class)) {
+            elections.add(null);
+        }
+        elections.addAll(mongoTemplate.findDistinct(new Query(Criteria.where("batchId").exists(false)
+                .and("voidedData").exists(false).and("electionId").ne(null)), "electionId", Votedata.class, String.class));
+        return elections;
+    }
+
+    private static Criteria unbatched(String electionId) {
+        return Criteria.where("batchId").exists(false).and("electionId").is(electionId).and("voidedData").exists(false);
+    }
+
+    // Sequences are numbered per election, so a batch only ever holds one election's votes
+    private boolean sealNextBatch(String electionId) {
+        Query query = new Query(unbatched(electionId))
+                .with(Sort.by("sequence"))
+                .limit(batchSize);
+        query.fields().include("_id");
+        List<Votedata> candidates = mongoTemplate.find(query, Votedata.class);
+        if (candidates.isEmpty()) {
+            return false;
+        }
+        List<String> ids = new ArrayList<>(candidates.size());
+        for (Votedata vote : candidates) {
+            ids.add(vote.getId());
+        }
+
+        VoteBatch batch = new VoteBatch();
+        batch.setElectionId(electionId);
+        batch.setStatus(VoteBatch.Status.SEALING);
+        batch.setCreatedAt(new Date());
+        mongoTemplate.insert(batch);
+
+        // Only votes still unbatched are claimed, so no vote lands in two batches
+        mongoTemplate.updateMulti(new Query(Criteria.where("_id").in(ids).and("batchId").exists(false)),
+                new Update().set("batchId", batch.getId()), Votedata.class);
+        int sealed = finishSealing(batch);
+        unbatched.updateAndGet(n -> Math.max(0, n - candidates.size()));
+        if (sealed > 0) {
+            anchor(batch);
+        }
+        return candidates.size() == batchSize;
+    }
+
+    /**
+     * Builds the tree over the votes the batch has claimed, stamps their
+     * proofs and makes the batch anchorable. Returns the number of votes;
+     * a batch that claimed none is removed.
+     */
+    private int finishSealing(VoteBatch batch) {
+        Query claimed = new Query(Criteria.where("batchId").is(batch.getId())).with(Sort.by("sequence"));
+        claimed.fields().include("currhash").include("sequence");
+        List<Votedata> votes = mongoTemplate.find(claimed, Votedata.class);
+        Query byId = new Query(Criteria.where("_id").is(batch.getId()));
+        if (votes.isEmpty()) {
+            mongoTemplate.remove(byId, VoteBatch.class);
+            return 0;
+        }
+
+        List<byte[]> leaves = new ArrayList<>(votes.size());
+        for (Votedata vote : votes) {
+            leaves.add(MerkleTree.leaf(vote.getCurrhash()));
+        }
+        MerkleTree tree = new MerkleTree(leaves);
+
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Votedata.class);
+        for (int i = 0; i < votes.size(); i++) {
+            bulk.updateOne(new Query(Criteria.where("_id").is(votes.get(i).getId())), new Update()
+                    .set("merkleIndex", i)
+                    .set("merkleProof", tree.getProof(i)));
+        }
+        bulk.execute();
+
+        batch.setMerkleRoot(MerkleTree.toHex(tree.getRoot()));
+        batch.setVoteCount(votes.size());
+        batch.setFirstSequence(votes.get(0).getSequence());
+        batch.setLastSequence(votes.get(votes.size() - 1).getSequence());
+        batch.setStatus(VoteBatch.Status.PENDING);
+        batch.setNextAttemptAt(new Date());
+        mongoTemplate.updateFirst(byId, new Update()
+                .set("merkleRoot", batch.getMerkleRoot())
+                .set("voteCount", batch.getVoteCount())
+                .set("firstSequence", batch.getFirstSequence())
+                .set("lastSequence", batch.getLastSequence())
+                .set("status", batch.getStatus())
+                .set("nextAttemptAt", batch.getNextAttemptAt()), VoteBatch.class);
+        System.out.println("[ANCHOR] Sealed batch " + batch.getId() + " of " + ChainHeadSequencer.chainId(batch.getElectionId())
+                + " with " + votes.size() + " votes, root=" + batch.getMerkleRoot());
+        return votes.size();
+    }
+
+    // Batches a crash interrupted between claiming their votes and getting a
+    // root, and unanchored batches whose root doesn't cover the votes they hold
+    private void recoverSealing() {
+        try {
+            for (VoteBatch batch : mongoTemplate.find(
+                    new Query(Criteria.where("status").is(VoteBatch.Status.SEALING)), VoteBatch.class)) {
+                System.out.println("[ANCHOR] Finishing batch " + batch.getId() + " left unsealed by a restart");
+                finishSealing(batch);
+            }
+            for (VoteBatch batch : mongoTemplate.find(
+                    new Query(Criteria.where("status").is(VoteBatch.Status.PENDING)), VoteBatch.class)) {
+                long held = mongoTemplate.count(new Query(Criteria.where("batchId").is(batch.getId())), Votedata.class);
+                if (held != batch.getVoteCount()) {
+                    System.out.println("[ANCHOR] Batch " + batch.getId() + " holds " + held + " of its "
+                            + batch.getVoteCount() + " votes, sealing it again");
+                    finishSealing(batch);
+                }
+            }
+        } catch (Exception e) {
+            System.err.println("[ANCHOR] Failed to recover unsealed batches: " + e.getMessage());
+        }
+    }
+
+    private void retryPendingBatches() {
+        Query due = new Query(Criteria.where("status").is(VoteBatch.Status.PENDING).and("nextAttemptAt").lte(new Date()))
+                .with(Sort.by("firstSequence"));
+        for (VoteBatch batch : mongoTemplate.find(due, VoteBatch.class)) {
+            anchor(batch);
+        }
+    }
+
+    private void anchor(VoteBatch batch) {
+        Query byId = new Query(Criteria.where("_id").is(batch.getId()));
+        byte[] root = MerkleTree.fromHex(batch.getMerkleRoot());
+        try {
+            if (batch.getAttempts() > 0 || batch.getTxHash() != null) {
+                // An earlier attempt may have been mined after its receipt timed
+                // out; sending the root again would revert with "Batch already anchored"
+                if (votingContractService.getAnchoredVoteCount(root).signum() > 0) {
+                    markAnchored(batch, batch.getTxHash());
+                    return;
+                }
+            }
+            String txHash = votingContractService.submitAnchorBatch(root, batch.getVoteCount());
+            batch.setTxHash(txHash);
+            mongoTemplate.updateFirst(byId, new Update().set("txHash", txHash), VoteBatch.class);
+            TransactionReceipt receipt = receiptPoller.track(txHash).get();
+            if (!receipt.isStatusOK()) {
+                throw new IllegalStateException("Transaction " + txHash + " reverted");
+            }
+            markAnchored(batch, txHash);
+        } catch (Exception e) {
+            int attempts = batch.getAttempts() + 1;
+            boolean giveUp = attempts >= maxAttempts;
+            mongoTemplate.updateFirst(byId, new Update()
+                    .set("status", giveUp ? VoteBatch.Status.FAILED : VoteBatch.Status.PENDING)
+                    .set("attempts", attempts)
+                    .set("nextAttemptAt", new Date(System.currentTimeMillis() + retryMs))
+                    .set("lastError", String.valueOf(e.getMessage())), VoteBatch.class);
+            System.err.println("[ANCHOR] Anchoring batch " + batch.getId() + " failed (attempt " + attempts + "): " + e.getMessage());
+        }
+    }
+
+    // txHash is null when the root was found anchored but the transaction that did it isn't known
+    private void markAnchored(VoteBatch batch, String txHash) {
+        Update update = new Update()
+                .set("status", VoteBatch.Status.ANCHORED)
+                .set("anchoredAt", new Date())
+                .unset("lastError");
+        if (txHash != null) {
+            update.set("txHash", txHash);
+            mongoTemplate.updateMulti(new Query(Criteria.where("batchId").is(batch.getId())),
+                    new Update().set("txhash", txHash), Votedata.class);
+        }
+        mongoTemplate.updateFirst(new Query(Criteria.where("_id").is(batch.getId())), update, VoteBatch.class);
+        System.out.println("[BLOCKCHAIN] Anchored batch " + batch.getId() + " in transaction " + txHash);
+    }
+}
@@ -0,0 +1,169 @@
+package net.codejava.service;
+
+import javax.annotation.PostConstruct;
+
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import com.mongodb.ClientSessionOptions;
+import com.mongodb.client.ClientSession;
+import com.mongodb.client.result.UpdateResult;
+
+import net.codejava.model.Candidate;
+import net.codejava.model.ElectionTally;
+import net.codejava.model.User;
+import net.codejava.model.VoteOutbox;
+import net.codejava.model.Votedata;
+
+/**
+ * Writes everything a ballot changes in one step: the vote itself, its outbox
+ * entry, an atomic $inc of the party's count and the voter's voted flag.
+ * Votes in an election are counted in election_tallies; votes without one
+ * use Candidate.voteCount and the voted flag. Counts are only ever changed
+ * with $inc, so concurrent votes for the same candidate can't lose increments.
+ *
+ * On a replica set the writes run in one multi-document transaction. On a
+ * standalone server they are applied in order, and the counter is
+ * compensated if a later write fails.
+ */
+@Service
+public class VoteCommitter {
+
+    @Value("${vote.commit.transactions:auto}")
+    private String transactionsSetting;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    private boolean transactional;
+
+    @PostConstruct
+    private void detectTransactions() {
+        if ("auto".equalsIgnoreCase(transactionsSetting)) {
+            try {
+                // Transactions need a replica set or a sharded cluster
+                Document hello = mongoTemplate.executeCommand(new Document("isMaster", 1));
+                transactional = hello.containsKey("setName") || "isdbgrid".equals(hello.getString("msg"));
+            } catch (Exception e) {
+                System.err.println("[COMMIT] Could not detect transaction support: " + e.getMessage());
+                transactional = false;
+            }
+        } else {
+            transactional = Boolean.parseBoolean(transactionsSetting);
+        }
+        System.out.println("[COMMIT] Vote commits " + (transactional ? "use" : "do not use") + " Mongo transactions");
+    }
+
+    /**
+     * Commits a vote. The outbox entry may be null when votes are anchored in batches.
+     *
+     * @throws IllegalStateException if the candidate does not exist or the voter already has a vote
+     */
+    public void commit(Votedata vote, VoteOutbox outbox) {
+        if (!transactional) {
+            apply(mongoTemplate, vote, outbox, true);
+            return;
+        }
+
+        ClientSession session = mongoTemplate.getMongoDbFactory().getSession(ClientSessionOptions.builder().build());
+        try {
+            session.startTransaction();
+            apply(mongoTemplate.withSession(session), vote, outbox, false);
+            session.commitTransaction();
+        } catch (RuntimeException e) {
+            if (session.hasActiveTransaction()) {
+                session.abortTransaction();
+            }
+            throw e;
+        } finally {
+            session.close();
+        }
+    }
+
+    private void apply(MongoOperations ops, Votedata vote, VoteOutbox outbox, boolean compensate) {
+        String electionId = vote.getElectionId();
+        boolean counted = false;
+        try {
+            if (electionId == null) {
+                UpdateResult result = ops.updateFirst(
+                        new Query(Criteria.where("party").is(vote.getCandidate())),
+                        new Update().inc("voteCount", 1),
+                        Candidate.class);
+                if (result.getMatchedCount() == 0) {
+                    throw invalidCandidate(vote);
+                }
+            } else {
+                // Each election counts in its own tally documents, so elections don't share counters
+                if (!ops.exists(new Query(Criteria.where("party").is(vote.getCandidate())), Candidate.class)) {
+                    throw invalidCandidate(vote);
+                }
+                countInTally(ops, vote, compensate);
+            }
+            counted = true;
+
+            ops.insert(vote);
+            if (outbox != null) {
+                outbox.setId(vote.getId());
+                ops.insert(outbox);
+            }
+            // Voting in an election is recorded by the vote itself, its
+            // (electionId, username) key is what the voter registry checks
+            if (electionId == null) {
+                ops.updateFirst(new Query(Criteria.where("username").is(vote.getUsername())),
+                        new Update().set("voted", true), User.class);
+            }
+        } catch (RuntimeException e) {
+            if (compensate && counted) {
+                if (electionId == null) {
+                    ops.updateFirst(
+                            new Query(Criteria.where("party").is(vote.getCandidate())),
+                            new Update().inc("voteCount", -1),
+                            Candidate.class);
+                } else {
+                    ops.updateFirst(tallyQuery(vote), new Update().inc("voteCount", -1), ElectionTally.class);
+                }
+                if (vote.getId() != null) {
+                    ops.remove(new Query(Criteria.where("_id").is(vote.getId())), Votedata.class);
+                }
+            }
+            // Only the vote's own keys make a duplicate mean the voter has voted
+            if (counted && e instanceof DuplicateKeyException) {
+                throw new IllegalStateException("You have already voted");
+            }
+            throw e;
+        }
+    }
+
+    // Two first votes for a party can race to insert its tally document; the
+    // loser's upsert fails on the _id and, run again, finds the document and
+    // increments it. Inside a transaction the failure aborts it instead.
+    private static void countInTally(MongoOperations ops, Votedata vote, boolean retry) {
+        Update update = new Update().inc("voteCount", 1).setOnInsert("electionId", vote.getElectionId())
+                .setOnInsert("party", vote.getCandidate());
+        try {
+            ops.upsert(tallyQuery(vote), update, ElectionTally.class);
+        } catch (DuplicateKeyException e) {
+            if (!retry) {
+                throw e;
+            }
+            ops.upsert(tallyQuery(vote), update, ElectionTally.class);
+        }
+    }
+
+    private static Query tallyQuery(Votedata vote) {
+        return new Query(Criteria.where("_id").is(ElectionTally.id(vote.getElectionId(), vote.getCandidate())));
+    }
+
+    private static IllegalStateException invalidCandidate(Votedata vote) {
+        System.err.println("[ERROR] Invalid candidate: " + vote.getCandidate());
+        return new IllegalStateException("Invalid candidate: " + vote.getCandidate());
+    }
+}
@@ -0,0 +1,362 @@
+package net.codejava.service;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.Date;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+import org.web3j.protocol.core.methods.response.TransactionReceipt;
+
+import net.codejava.model.VoteOutbox;
+import net.codejava.model.Votedata;
+import net.codejava.smartcontract.CandidateRegistry;
+import net.codejava.smartcontract.PipelinedTransactionManager.SignedTransaction;
+import net.codejava.smartcontract.ReceiptPoller;
+import net.codejava.smartcontract.VotingContractService;
+
+/**
+ * Drains the vote_outbox collection in the background so voters never wait on
+ * the RPC node. Each submitter claims one entry at a time with findAndModify,
+ * so entries are never sent twice by concurrent workers. Claims expire, which
+ * lets another worker pick up entries left behind by a crash.
+ *
+ * A vote is signed first and its hash and nonce are saved on the entry
+ * before it is sent, so from then on the entry stays tied to that
+ * transaction and nonce, even if the process dies mid-send. A receipt that
+ * doesn't arrive in time is polled for again later, and a transaction the
+ * node has dropped or never got is replaced at the same nonce with a
+ * higher gas price. A sent vote is never resent with a fresh nonce, which
+ * could get both transactions mined and count the ballot twice.
+ */
+@Service
+public class VoteOutboxWorker {
+
+    @Value("${vote.outbox.workers:4}")
+    private int workers;
+
+    @Value("${vote.outbox.max-attempts:8}")
+    private int maxAttempts;
+
+    @Value("${vote.outbox.backoff-ms:2000}")
+    private long backoffMs;
+
+    @Value("${vote.outbox.max-backoff-ms:300000}")
+    private long maxBackoffMs;
+
+    @Value("${vote.outbox.claim-timeout-ms:120000}")
+    private long claimTimeoutMs;
+
+    @Value("${vote.outbox.idle-poll-ms:500}")
+    private long idlePollMs;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private VotingContractService votingContractService;
+
+    @Autowired
+    private ReceiptPoller receiptPoller;
+
+    @Autowired
+    private CandidateRegistry candidateRegistry;
+
+    @Autowired
+    private TallyVersion tallyVersion;
+
+    private ExecutorService executor;
+    private volatile boolean running;
+
+    @PostConstruct
+    private void start() {
+        running = true;
+        try {
+            // Receipts being waited on are not persisted, so poll again for every sent vote
+            mongoTemplate.updateMulti(new Query(Criteria.where("status").is(VoteOutbox.Status.SUBMITTED)),
+                    new Update().set("nextAttemptAt", new Date()), VoteOutbox.class);
+        } catch (Exception e) {
+            System.err.println("[OUTBOX] Could not resume sent votes: " + e.getMessage());
+        }
+        AtomicInteger threadId = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(workers, r -> {
+            Thread t = new Thread(r, "vote-outbox-" + threadId.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        for (int i = 0; i < workers; i++) {
+            executor.submit(this::drain);
+        }
+        System.out.println("[OUTBOX] Started " + workers + " vote submitters");
+    }
+
+    @PreDestroy
+    private void stop() throws InterruptedException {
+        running = false;
+        executor.shutdownNow();
+        executor.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    private void drain() {
+        while (running) {
+            try {
+                VoteOutbox entry = claimNext();
+                if (entry == null) {
+                    Thread.sleep(idlePollMs);
+                    continue;
+                }
+                submit(entry);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                System.err.println("[OUTBOX] Submitter error: " + e.getMessage());
+                try {
+                    Thread.sleep(idlePollMs);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private VoteOutbox claimNext() {
+        Date now = new Date();
+        Criteria due = Criteria.where("status").is(VoteOutbox.Status.PENDING).and("nextAttemptAt").lte(now);
+        Criteria abandoned = Criteria.where("status").is(VoteOutbox.Status.IN_FLIGHT).and("lockedUntil").lt(now);
+        Criteria unconfirmed = Criteria.where("status").is(VoteOutbox.Status.SUBMITTED).and("nextAttemptAt").lte(now);
+        Query query = new Query(new Criteria().orOperator(due, abandoned, unconfirmed))
+                .with(Sort.by("nextAttemptAt"));
+        Update update = new Update()
+                .set("status", VoteOutbox.Status.IN_FLIGHT)
+                .set("lockedUntil", new Date(now.getTime() + claimTimeoutMs))
+                .set("updatedAt", now)
+                .inc("attempts", 1);
+        return mongoTemplate.findAndModify(query, update, FindAndModifyOptions.options().returnNew(true), VoteOutbox.class);
+    }
+
+    private void submit(VoteOutbox entry) {
+        if (entry.getTxHash() != null) {
+            recheck(entry);
+            return;
+        }
+        SignedTransaction signed;
+        try {
+            BigInteger candidateId = candidateRegistry.getCandidateId(entry.getCandidate());
+            if (candidateId == null) {
+                // The registry may still be catching up with a newly added candidate, so retry later
+                handleFailure(entry, "No on-chain candidate for party " + entry.getCandidate());
+                return;
+            }
+            signed = votingContractService.signVote(candidateId);
+        } catch (Exception e) {
+            handleFailure(entry, String.valueOf(e.getMessage()));
+            return;
+        }
+        // Recorded before sending, so an entry whose submitter died mid-send
+        // is looked up by this hash and nonce when reclaimed, not sent again
+        try {
+            markSigned(entry, signed);
+        } catch (Exception e) {
+            votingContractService.releaseSigned(signed);
+            handleFailure(entry, String.valueOf(e.getMessage()));
+            return;
+        }
+        try {
+            votingContractService.sendSigned(signed);
+        } catch (IOException e) {
+            // The node may have taken it before the call failed
+            awaitReceipt(entry, "No answer sending " + signed.getHash() + ": " + e.getMessage());
+            return;
+        } catch (Exception e) {
+            // Rejected, so it never reached the pool and the vote can be signed afresh
+            clearSigned(entry);
+            handleFailure(entry, String.valueOf(e.getMessage()));
+            return;
+        }
+        markSubmitted(entry, signed.getHash(), entry.getNonce());
+        System.out.println("[BLOCKCHAIN] Vote transaction hash: " + signed.getHash());
+        track(entry, signed.getHash());
+    }
+
+    // A vote already sent whose receipt didn't arrive: poll for it again, or
+    // replace it at its own nonce if the node has dropped it
+    private void recheck(VoteOutbox entry) {
+        String txHash = entry.getTxHash();
+        BigInteger known;
+        try {
+            known = votingContractService.transactionNonce(txHash);
+        } catch (Exception e) {
+            awaitReceipt(entry, "Could not look up transaction " + txHash + ": " + e.getMessage());
+            return;
+        }
+        if (known != null) {
+            markSubmitted(entry, txHash, known.longValue());
+            track(entry, txHash);
+            return;
+        }
+        if (entry.getNonce() == null) {
+            markFailed(entry, "Transaction " + txHash + " was dropped and its nonce is unknown, not resending");
+            return;
+        }
+
+        String replacement;
+        try {
+            BigInteger candidateId = candidateRegistry.getCandidateId(entry.getCandidate());
+            if (candidateId == null) {
+                awaitReceipt(entry, "No on-chain candidate for party " + entry.getCandidate());
+                return;
+            }
+            replacement = votingContractService.replaceVote(candidateId, BigInteger.valueOf(entry.getNonce()),
+                    entry.getAttempts());
+        } catch (Exception e) {
+            String error = String.valueOf(e.getMessage());
+            if (error.toLowerCase().contains("nonce too low")) {
+                // Another transaction took the nonce, so the vote was never mined;
+                // sending it at a new nonce is left to an operator
+                markFailed(entry, "Transaction " + txHash + " was dropped and nonce " + entry.getNonce()
+                        + " has been used since");
+            } else {
+                awaitReceipt(entry, "Replacing " + txHash + " failed: " + error);
+            }
+            return;
+        }
+        System.out.println("[BLOCKCHAIN] Vote " + entry.getId() + " was dropped, replaced " + txHash + " with "
+                + replacement + " at nonce " + entry.getNonce());
+        markSubmitted(entry, replacement, entry.getNonce());
+        track(entry, replacement);
+    }
+
+    private void track(VoteOutbox entry, String txHash) {
+        // The submitter moves on, the receipt is picked up by the shared poller
+        receiptPoller.track(txHash).whenComplete((receipt, error) -> {
+            if (error != null) {
+                awaitReceipt(entry, "Transaction " + txHash + " was not mined yet: " + error.getMessage());
+            } else {
+                recordReceipt(entry, receipt);
+            }
+        });
+    }
+
+    private void handleFailure(VoteOutbox entry, String error) {
+        if (error.contains("execution reverted: You have already voted")) {
+            // The contract will never accept this vote, retrying only burns gas
+            System.out.println("[BLOCKCHAIN] User " + entry.getUsername() + " has already voted on-chain");
+            markFailed(entry, error);
+        } else if (entry.getAttempts() >= maxAttempts) {
+            System.err.println("[OUTBOX] Giving up on vote " + entry.getId() + " after " + entry.getAttempts() + " attempts: " + error);
+            markFailed(entry, error);
+        } else {
+            System.err.println("[OUTBOX] Vote " + entry.getId() + " attempt " + entry.getAttempts() + " failed: " + error);
+            reschedule(entry, error);
+        }
+    }
+
+    private void markSigned(VoteOutbox entry, SignedTransaction signed) {
+        entry.setTxHash(signed.getHash());
+        entry.setNonce(signed.getNonce().longValue());
+        mongoTemplate.updateFirst(byId(entry.getId()), new Update()
+                .set("txHash", entry.getTxHash())
+                .set("nonce", entry.getNonce())
+                .set("updatedAt", new Date()), VoteOutbox.class);
+    }
+
+    private void clearSigned(VoteOutbox entry) {
+        entry.setTxHash(null);
+        entry.setNonce(null);
+        mongoTemplate.updateFirst(byId(entry.getId()), new Update()
+                .unset("txHash")
+                .unset("nonce"), VoteOutbox.class);
+    }
+
+    private void markSubmitted(VoteOutbox entry, String txHash, Long nonce) {
+        Date now = new Date();
+        entry.setTxHash(txHash);
+        entry.setNonce(nonce);
+        mongoTemplate.updateFirst(byId(entry.getId()), new Update()
+                .set("status", VoteOutbox.Status.SUBMITTED)
+                .set("txHash", txHash)
+                .set("nonce", nonce)
+                // Not due again while the poller is waiting on the receipt
+                .unset("nextAttemptAt")
+                .unset("lockedUntil")
+                .unset("lastError")
+                .set("updatedAt", now), VoteOutbox.class);
+        mongoTemplate.updateFirst(byId(entry.getId()), new Update()
+                .set("txhash", txHash)
+                .set("txstatus", Votedata.TxStatus.PENDING), Votedata.class);
+        tallyVersion.bump();
+    }
+
+    private void recordReceipt(VoteOutbox entry, TransactionReceipt receipt) {
+        boolean ok = receipt.isStatusOK();
+        mongoTemplate.updateFirst(byId(entry.getId()), new Update()
+                .set("txstatus", ok ? Votedata.TxStatus.CONFIRMED : Votedata.TxStatus.REVERTED)
+                .set("blockNumber", receipt.getBlockNumber().longValue()), Votedata.class);
+        if (ok) {
+            mongoTemplate.updateFirst(byId(entry.getId()), new Update()
+                    .set("status", VoteOutbox.Status.CONFIRMED)
+                    .set("updatedAt", new Date()), VoteOutbox.class);
+            System.out.println("[BLOCKCHAIN] Vote " + entry.getId() + " confirmed in block " + receipt.getBlockNumber());
+        } else {
+            // A reverted vote is final, resending the same call would revert again
+            markFailed(entry, "Transaction " + receipt.getTransactionHash() + " reverted");
+            System.err.println("[BLOCKCHAIN] Vote " + entry.getId() + " reverted in block " + receipt.getBlockNumber());
+        }
+    }
+
+    private void markFailed(VoteOutbox entry, String error) {
+        mongoTemplate.updateFirst(byId(entry.getId()), new Update()
+                .set("status", VoteOutbox.Status.FAILED)
+                .set("lastError", error)
+                .unset("lockedUntil")
+                .set("updatedAt", new Date()), VoteOutbox.class);
+        tallyVersion.bump();
+    }
+
+    private void reschedule(VoteOutbox entry, String error) {
+        Date now = new Date();
+        mongoTemplate.updateFirst(byId(entry.getId()), new Update()
+                .set("status", VoteOutbox.Status.PENDING)
+                .set("nextAttemptAt", new Date(now.getTime() + backoff(entry)))
+                .set("lastError", error)
+                .unset("lockedUntil")
+                .set("updatedAt", now), VoteOutbox.class);
+    }
+
+    // The transaction stays the entry's, it is only looked up again after the backoff
+    private void awaitReceipt(VoteOutbox entry, String error) {
+        System.err.println("[OUTBOX] Vote " + entry.getId() + ": " + error);
+        Date now = new Date();
+        mongoTemplate.updateFirst(byId(entry.getId()), new Update()
+                .set("status", VoteOutbox.Status.SUBMITTED)
+                .set("nextAttemptAt", new Date(now.getTime() + backoff(entry)))
+                .set("lastError", error)
+                .unset("lockedUntil")
+                .set("updatedAt", now), VoteOutbox.class);
+    }
+
+    // Exponential backoff, doubling per attempt up to the configured ceiling
+    private long backoff(VoteOutbox entry) {
+        return Math.min(maxBackoffMs, backoffMs << Math.min(Math.max(entry.getAttempts() - 1, 0), 20));
+    }
+
+    private static Query byId(String id) {
+        return new Query(Criteria.where("_id").is(id));
+    }
+}
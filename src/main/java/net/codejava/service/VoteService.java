@@ -2,6 +2,8 @@ package net.codejava.service;
 
 import java.io.UnsupportedEncodingException;
 import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
@@ -10,13 +12,20 @@ import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import javax.annotation.PostConstruct;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 
 import net.codejava.model.Block;
+import net.codejava.model.VoteOutbox;
 import net.codejava.model.Votedata;
+import net.codejava.repository.VoteOutboxRepo;
 import net.codejava.repository.VoteRepo;
 import net.codejava.smartcontract.VoteSmartContract;
 import net.codejava.model.Candidate;
+import net.codejava.model.ElectionTally;
 import net.codejava.model.User;
 import net.codejava.repository.UserRepo;
 
@@ -24,6 +33,9 @@ import net.codejava.repository.UserRepo;
 public class VoteService {
     private final AtomicBoolean isVotingActive = new AtomicBoolean(true);
 
+    // Ids of the ACTIVE elections, kept current by ElectionLifecycleScheduler
+    private volatile List<String> openElections = Collections.emptyList();
+
     @Autowired
     private VoteRepo voterepo;
 
@@ -36,6 +48,39 @@ public class VoteService {
     @Autowired
     private UserRepo userRepo;
 
+    @Autowired
+    private ChainHeadSequencer chainHeadSequencer;
+
+    @Autowired
+    private VoteOutboxRepo voteOutboxRepo;
+
+    @Autowired
+    private VoteBatchAnchorer voteBatchAnchorer;
+
+    @Autowired
+    private VoteCommitter voteCommitter;
+
+    @Autowired
+    private VoterRegistry voterRegistry;
+
+    @Autowired
+    private ProofOfWorkService proofOfWork;
+
+    @Autowired
+    private ChainAuditService chainAuditService;
+
+    @Autowired
+    private ElectionMerkleService electionMerkleService;
+
+    @Autowired
+    private ResultsProjection resultsProjection;
+
+    @Autowired
+    private TallyVersion tallyVersion;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
         @Autowired
         private net.codejava.smartcontract.VotingContractService votingContractService;
 
@@ -55,8 +100,6 @@ public class VoteService {
             }
         }
     
-    // Removed unused mongoTemplate for now
-    
     // Voting control methods
     public void setVotingActive(boolean active) {
         isVotingActive.set(active);
@@ -65,26 +108,63 @@ public class VoteService {
     public boolean isVotingActive() {
         return isVotingActive.get();
     }
+
+    public void setOpenElections(List<String> electionIds) {
+        openElections = Collections.unmodifiableList(new ArrayList<>(electionIds));
+    }
+
+    public List<String> getOpenElections() {
+        return openElections;
+    }
+
+    /**
+     * The election a vote goes to when the caller doesn't name one: the only
+     * open election, or null (votes without an election) when none is open.
+     */
+    public String getCurrentElectionId() {
+        List<String> open = openElections;
+        if (open.size() > 1) {
+            throw new IllegalStateException("Several elections are open, the vote must name one");
+        }
+        return open.isEmpty() ? null : open.get(0);
+    }
     
+    /**
+     * The election whose results are shown when the caller doesn't name one:
+     * the only open election, or votes without an election otherwise.
+     */
+    public String getResultsElectionId(String requested) {
+        if (requested != null && !requested.isEmpty()) {
+            return requested;
+        }
+        List<String> open = openElections;
+        return open.size() == 1 ? open.get(0) : null;
+    }
+    
+    /**
+     * Clears all votes. Every step is a single server-side operation, so the
+     * time doesn't grow with the voter roll. User documents are not touched:
+     * whether someone has voted is answered from their votes, by the voter
+     * registry, and those are removed here.
+     */
     public void resetVotingSystem() {
         // Clear all votes
         voterepo.deleteAll();
+        voteOutboxRepo.deleteAll();
+        voteBatchAnchorer.reset();
+        chainHeadSequencer.reset();
+        chainAuditService.reset();
+        electionMerkleService.reset();
+        voterRegistry.reset();
         // Reset voting status
         isVotingActive.set(false);
-        
+
         // Reset all candidate vote counts
-        List<Candidate> candidates = candidaterepo.findAll();
-        for (Candidate candidate : candidates) {
-            candidate.setVoteCount(0);
-            candidaterepo.save(candidate);
-        }
+        mongoTemplate.updateMulti(new Query(), new Update().set("voteCount", 0), Candidate.class);
+        mongoTemplate.remove(new Query(), ElectionTally.class);
 
-        // Reset voted status for all users
-        List<User> users = userRepo.findAll();
-        for (User user : users) {
-            user.setVoted(false);
-            userRepo.save(user);
-        }
+        resultsProjection.reset();
+        tallyVersion.bump();
     }
     
     public Map<String, Object> getVotingStatistics() {
@@ -102,13 +182,30 @@ public class VoteService {
             votesByCandidate.put(candidate.getParty(), votes);
         }
         
+        // Votes cast in an election are counted in its tallies instead, per election
+        Map<String, Map<String, Long>> votesByElection = new HashMap<>();
+        for (ElectionTally tally : mongoTemplate.findAll(ElectionTally.class)) {
+            totalVotes += tally.getVoteCount();
+            votesByElection.computeIfAbsent(tally.getElectionId(), id -> new HashMap<>())
+                    .put(tally.getParty(), tally.getVoteCount());
+        }
+
         stats.put("totalVotes", totalVotes);
         
-        // Add vote counts by candidate
+        // Add vote counts by candidate, for votes outside any election
         stats.put("votesByCandidate", votesByCandidate);
+        stats.put("votesByElection", votesByElection);
         
         // Add voting status
         stats.put("isVotingActive", isVotingActive.get());
+
+        // Add on-chain submission backlog
+        stats.put("pendingChainSubmissions", voteOutboxRepo.countByStatus(VoteOutbox.Status.PENDING));
+        stats.put("failedChainSubmissions", voteOutboxRepo.countByStatus(VoteOutbox.Status.FAILED));
+
+        // Add proof-of-work settings
+        stats.put("powDifficultyBits", proofOfWork.getDifficultyBits());
+        stats.put("powHashRate", proofOfWork.getLastHashRate());
         
         // Add timestamp
         stats.put("lastUpdated", new Date());
@@ -118,85 +215,131 @@ public class VoteService {
 
     public boolean isSuccessfull(String candidateName, String adhhar, String name)
             throws NoSuchAlgorithmException, UnsupportedEncodingException {
+        return castVote(candidateName, adhhar, name) != null;
+    }
+
+    /**
+     * Records a vote and returns the committed Votedata, so callers don't have
+     * to read it back to get the block hash.
+     */
+    public Votedata castVote(String candidateName, String adhhar, String name) {
+        return castVote(getCurrentElectionId(), candidateName, adhhar, name);
+    }
+
+    /**
+     * Records a vote in the given election, on that election's own chain.
+     * A null electionId records a vote without an election.
+     */
+    public Votedata castVote(String electionId, String candidateName, String adhhar, String name) {
         
-        // Check if voting is active
         // Check if voting is active
         if (!isVotingActive()) {
             throw new IllegalStateException("Voting is not active at this time");
         }
+        if (electionId != null && !openElections.contains(electionId)) {
+            throw new IllegalStateException("This election is not open for voting");
+        }
+        if (!voterRegistry.reserve(electionId, adhhar)) {
+            throw new IllegalStateException("Your vote is already being recorded");
+        }
+        try {
+            return recordVote(electionId, candidateName, adhhar, name);
+        } finally {
+            voterRegistry.unreserve(electionId, adhhar);
+        }
+    }
+
+    // Everything that can reject the vote is checked before a chain link is taken
+    private Votedata recordVote(String electionId, String candidateName, String adhhar, String name) {
         // Check if user has already voted
-        if (userExists(adhhar)) {
+        if (voterRegistry.hasVoted(electionId, adhhar)) {
             throw new IllegalStateException("You have already voted");
         }
+        if (candidateName == null
+                || !mongoTemplate.exists(new Query(Criteria.where("party").is(candidateName)), Candidate.class)) {
+            throw new IllegalStateException("Invalid candidate: " + candidateName);
+        }
 
-        // Check on blockchain if user has already voted
-        try {
-            Boolean hasVoted = votingContractService.hasVoted(adhhar);
-            if (hasVoted != null && hasVoted) {
-                throw new IllegalStateException("You have already voted (blockchain)");
+        // Check on blockchain if user has already voted, only needed when the
+        // registry's Bloom filter could not rule the voter out. The contract
+        // keeps one voter set, so it only speaks for votes without an election
+        if (electionId == null && voterRegistry.mightHaveVoted(adhhar)) {
+            try {
+                Boolean hasVoted = votingContractService.hasVoted(adhhar);
+                if (hasVoted != null && hasVoted) {
+                    throw new IllegalStateException("You have already voted (blockchain)");
+                }
+            } catch (Exception e) {
+                System.err.println("[ERROR] Blockchain check failed: " + e.getMessage());
+                throw new RuntimeException("Blockchain check failed: " + e.getMessage());
             }
-        } catch (Exception e) {
-            System.err.println("[ERROR] Blockchain check failed: " + e.getMessage());
-            throw new RuntimeException("Blockchain check failed: " + e.getMessage());
         }
 
-        // Prepare vote block
-        Votedata lastEntry = voterepo.findTopByOrderByDateDesc();
-        String[] data = { adhhar, name, candidateName };
-        Block block = (lastEntry == null) ? new Block(data, "0") : new Block(data, lastEntry.getCurrhash());
+        // Prepare vote block on top of the in-memory chain head
+        String[] data = electionId == null
+                ? new String[] { adhhar, name, candidateName }
+                : new String[] { adhhar, name, candidateName, electionId };
+        ChainHeadSequencer.Link link = chainHeadSequencer.allocate(electionId, data);
+        Block block = link.getBlock();
 
         Votedata vote = new Votedata();
+        vote.setElectionId(electionId);
         vote.setUsername(adhhar);
         vote.setCandidate(candidateName);
         vote.setCurrhash(block.getBlockHash());
         vote.setPrevhash(block.getPreviousBlockHash());
+        vote.setVoterName(name);
+        vote.setBlockTimestamp(block.getTimestamp());
+        vote.setNonce(block.getNonce());
+        vote.setSequence(link.getSequence());
         vote.setDate(new Date());
 
-        // Save vote in DB
-        voterepo.save(vote);
+        // Vote, outbox entry, candidate count and voted flag go to Mongo in one commit
+        VoteOutbox outbox = voteBatchAnchorer.isBatchMode() ? null : new VoteOutbox(vote);
+        try {
+            voteCommitter.commit(vote, outbox);
+        } catch (RuntimeException e) {
+            if (!chainHeadSequencer.release(link)) {
+                // A later block already chains on this one; a void block fills its place
+                chainHeadSequencer.voidLink(link);
+                electionMerkleService.sequenceSkipped(electionId, link.getSequence());
+            }
+            throw e;
+        }
+        chainHeadSequencer.commit(link);
+        electionMerkleService.voteCommitted(vote);
+        resultsProjection.voteCommitted(electionId, candidateName);
+        // The commit's inserts may fire before the transaction is visible, so bump once more after it
+        tallyVersion.bump();
+        voterRegistry.record(electionId, adhhar);
         System.out.println("[INFO] Vote saved for user: " + adhhar + " candidate: " + candidateName);
 
-        // Update candidate vote count
-        Candidate candidate = candidaterepo.findByParty(candidateName);
-        if (candidate != null) {
-            candidate.incrementVoteCount();
-            candidaterepo.save(candidate);
-            System.out.println("[INFO] Candidate " + candidateName + " vote count incremented.");
+        if (outbox == null) {
+            // Anchored later as part of a Merkle batch
+            voteBatchAnchorer.voteCommitted();
         } else {
-            System.err.println("[ERROR] Invalid candidate: " + candidateName);
-            throw new IllegalStateException("Invalid candidate: " + candidateName);
+            System.out.println("[OUTBOX] Vote " + vote.getId() + " queued for blockchain submission");
         }
 
-        // Record vote on blockchain and log transaction hash
-        try {
-            // TODO: Map candidateName to candidateId
-            java.math.BigInteger candidateId = java.math.BigInteger.valueOf(1); // Replace with actual mapping
-            org.web3j.protocol.core.methods.response.TransactionReceipt receipt = votingContractService.vote(candidateId);
-            String txHash = receipt.getTransactionHash();
-            vote.setCurrhash(txHash); // Optionally store txHash in currhash or add a new field for txHash
-            voterepo.save(vote); // Update with txHash
-            System.out.println("[BLOCKCHAIN] Vote transaction hash: " + txHash);
-            System.out.println("[BLOCKCHAIN] Transaction status: " + receipt.getStatus());
-        } catch (Exception e) {
-            // Check if error is "already voted" - log but continue for testing
-            if (e.getMessage().contains("execution reverted: You have already voted")) {
-                System.out.println("[BLOCKCHAIN] User has already voted on-chain - allowing DB update for testing");
-            } else {
-                System.err.println("[ERROR] Blockchain vote failed: " + e.getMessage());
-                throw new RuntimeException("Blockchain vote failed: " + e.getMessage());
-            }
-        }
+        return vote;
+    }
 
-    return true;
+    public boolean hasVoted(String electionId, String username) {
+        return voterRegistry.hasVoted(electionId, username);
     }
 
+    // Whether the user already voted in the current election
     public boolean userExists(String username) {
-        Votedata user = voterepo.findByUsername(username);
-        return user != null;
+        List<String> open = openElections;
+        if (open.size() > 1) {
+            // Answered per election when the vote names one
+            return false;
+        }
+        return voterRegistry.hasVoted(open.isEmpty() ? null : open.get(0), username);
     }
 
     public int countVotes() {
-        return (int) voterepo.count();
+        return (int) (voterepo.count() - voterepo.countVoided());
     }
 
     // public static void pollVotes(String choiced, String adhaarid, String uname) {
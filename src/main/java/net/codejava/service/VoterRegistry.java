@@ -0,0 +1,139 @@
+package net.codejava.service;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.util.CloseableIterator;
+import org.springframework.stereotype.Service;
+
+import net.codejava.helper.BloomFilter;
+import net.codejava.model.Votedata;
+
+/**
+ * In-memory answer to "has this voter already voted?".
+ *
+ * A Bloom filter gives a definite "no" for almost every first-time voter
+ * without touching Mongo or the chain. Only when the filter says "maybe"
+ * do we look at the exact set of voter ids, and only if that misses too
+ * (a false positive) do we fall back to Mongo.
+ *
+ * Voters are tracked per election: having voted in one election doesn't
+ * count for another.
+ *
+ * A voter whose vote is being recorded is reserved, so a second submission
+ * in flight at the same time is turned away before it takes a chain link.
+ */
+@Service
+public class VoterRegistry {
+
+    @Value("${vote.registry.expected-voters:1000000}")
+    private long expectedVoters;
+
+    @Value("${vote.registry.false-positive-rate:0.01}")
+    private double falsePositiveRate;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    private volatile BloomFilter filter;
+    private final Set<String> voted = ConcurrentHashMap.newKeySet();
+    private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+
+    @PostConstruct
+    private void load() {
+        filter = new BloomFilter(expectedVoters, falsePositiveRate);
+        try {
+            Query query = new Query(Criteria.where("voidedData").exists(false));
+            query.fields().include("username").include("electionId").exclude("_id");
+            try (CloseableIterator<Votedata> votes = mongoTemplate.stream(query, Votedata.class)) {
+                while (votes.hasNext()) {
+                    Votedata vote = votes.next();
+                    if (vote.getUsername() != null) {
+                        record(vote.getElectionId(), vote.getUsername());
+                    }
+                }
+            }
+            System.out.println("[REGISTRY] Loaded " + voted.size() + " voters who have already voted");
+        } catch (Exception e) {
+            System.err.println("[REGISTRY] Failed to preload voters: " + e.getMessage());
+        }
+    }
+
+    /**
+     * False means the voter has definitely not voted. True means the exact checks must decide.
+     */
+    public boolean mightHaveVoted(String username) {
+        return mightHaveVoted(null, username);
+    }
+
+    public boolean mightHaveVoted(String electionId, String username) {
+        return filter.mightContain(key(electionId, username));
+    }
+
+    public boolean hasVoted(String username) {
+        return hasVoted(null, username);
+    }
+
+    /**
+     * Whether the voter has a vote in the election, or a vote without an
+     * election when electionId is null.
+     */
+    public boolean hasVoted(String electionId, String username) {
+        String key = key(electionId, username);
+        if (!filter.mightContain(key)) {
+            return false;
+        }
+        if (voted.contains(key)) {
+            return true;
+        }
+        return mongoTemplate.exists(new Query(Criteria.where("electionId").is(electionId).and("username").is(username)),
+                Votedata.class);
+    }
+
+    /**
+     * Claims the voter while their vote is recorded. False if another vote of
+     * theirs in the same election is already being recorded.
+     */
+    public boolean reserve(String electionId, String username) {
+        return inFlight.add(key(electionId, username));
+    }
+
+    public void unreserve(String electionId, String username) {
+        inFlight.remove(key(electionId, username));
+    }
+
+    public void record(String username) {
+        record(null, username);
+    }
+
+    public void record(String electionId, String username) {
+        String key = key(electionId, username);
+        filter.put(key);
+        voted.add(key);
+    }
+
+    // Votes without an election keep the bare username, as before elections were tracked
+    private static String key(String electionId, String username) {
+        return electionId == null ? username : electionId + '\u0000' + username;
+    }
+
+    /**
+     * Forgets every voter, used when all votes are cleared.
+     */
+    public void reset() {
+        BloomFilter fresh = new BloomFilter(expectedVoters, falsePositiveRate);
+        voted.clear();
+        filter = fresh;
+    }
+
+    public int size() {
+        return voted.size();
+    }
+}
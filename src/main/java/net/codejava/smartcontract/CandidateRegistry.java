@@ -0,0 +1,79 @@
+package net.codejava.smartcontract;
+
+import java.math.BigInteger;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.web3j.abi.datatypes.Type;
+
+/**
+ * Maps a candidate's party, as stored on Candidate and Votedata, to the
+ * contract's candidate id.
+ *
+ * The map is loaded from getActiveCandidateIds and getCandidate at startup
+ * and then kept current from CandidateAdded and CandidateRemoved logs. It is
+ * never modified in place: writers publish a fresh copy, so lookups on the
+ * vote path are a single volatile read and a HashMap get.
+ */
+@Component
+public class CandidateRegistry implements ContractStateCache.CandidateListener {
+
+    @Autowired
+    private VotingContractService votingContractService;
+
+    @Autowired
+    private ContractStateCache stateCache;
+
+    private volatile Map<String, BigInteger> idsByParty = Collections.emptyMap();
+
+    @PostConstruct
+    private void load() {
+        stateCache.addCandidateListener(this);
+        try {
+            for (BigInteger candidateId : votingContractService.getActiveCandidateIds()) {
+                List<Type<?>> fields = votingContractService.getCandidate(candidateId);
+                candidateAdded(candidateId, (String) fields.get(1).getValue(), (String) fields.get(2).getValue());
+            }
+            System.out.println("[CANDIDATES] Loaded " + idsByParty.size() + " active candidates from the contract");
+        } catch (Exception e) {
+            System.err.println("[CANDIDATES] Failed to load candidates from the contract: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Returns the contract's id for the party, or null if no active candidate has it.
+     */
+    public BigInteger getCandidateId(String party) {
+        return party == null ? null : idsByParty.get(party);
+    }
+
+    public int size() {
+        return idsByParty.size();
+    }
+
+    @Override
+    public synchronized void candidateAdded(BigInteger candidateId, String name, String party) {
+        if (candidateId.equals(idsByParty.get(party))) {
+            return;
+        }
+        Map<String, BigInteger> next = new HashMap<>(idsByParty);
+        next.put(party, candidateId);
+        idsByParty = Collections.unmodifiableMap(next);
+    }
+
+    @Override
+    public synchronized void candidateRemoved(BigInteger candidateId) {
+        if (!idsByParty.containsValue(candidateId)) {
+            return;
+        }
+        Map<String, BigInteger> next = new HashMap<>(idsByParty);
+        next.values().remove(candidateId);
+        idsByParty = Collections.unmodifiableMap(next);
+    }
+}
@@ -0,0 +1,249 @@
+package net.codejava.smartcontract;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.web3j.abi.EventEncoder;
+import org.web3j.abi.FunctionReturnDecoder;
+import org.web3j.abi.TypeReference;
+import org.web3j.abi.datatypes.Address;
+import org.web3j.abi.datatypes.Type;
+import org.web3j.abi.datatypes.generated.Uint256;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.DefaultBlockParameter;
+import org.web3j.protocol.core.methods.request.EthFilter;
+import org.web3j.protocol.core.methods.response.EthLog;
+import org.web3j.protocol.core.methods.response.Log;
+import org.web3j.protocol.core.methods.response.TransactionReceipt;
+
+/**
+ * Local copy of the Voting contract's voters mapping and per-candidate vote
+ * counts, built from the contract's logs.
+ *
+ * The cache replays VotedEvent, CandidateAdded and CandidateRemoved from the
+ * contract's deployment block, web3.events.from-block or else the block of
+ * the CONTRACT_DEPLOY_TX transaction, then follows new blocks with
+ * eth_getLogs in bounded ranges. syncedBlock is the last block fully applied, so callers
+ * can ask for a minimum freshness and fall back to an eth_call when the
+ * cache is behind.
+ *
+ * Nothing is answered until the replay has reached the head block seen at
+ * startup, so a partly replayed log is never taken for the contract's state.
+ * Receipts of our own transactions raise the block callers should require
+ * through getRequiredBlock, so a vote just mined is never missed.
+ */
+@Component
+public class ContractStateCache {
+
+    private static final String VOTED_TOPIC = EventEncoder.encode(Voting.VOTEDEVENT_EVENT);
+    private static final String ADDED_TOPIC = EventEncoder.encode(Voting.CANDIDATEADDED_EVENT);
+    private static final String REMOVED_TOPIC = EventEncoder.encode(Voting.CANDIDATEREMOVED_EVENT);
+
+    @Autowired
+    private Web3j web3j;
+
+    @Value("${CONTRACT_ADDRESS}")
+    private String contractAddress;
+
+    // Block the replay starts from, the contract's deployment block; block 0
+    // would replay the whole network's history in max-range chunks
+    @Value("${web3.events.from-block:-1}")
+    private long fromBlock;
+
+    // Deployment transaction saved by scripts/deploy.js, used to find the
+    // deployment block when from-block is not set
+    @Value("${CONTRACT_DEPLOY_TX:}")
+    private String deployTransaction;
+
+    @Value("${web3.events.max-range:2048}")
+    private long maxRange;
+
+    @Value("${web3.events.poll-ms:2000}")
+    private long pollMs;
+
+    private final Set<String> voters = ConcurrentHashMap.newKeySet();
+    private final Map<BigInteger, BigInteger> votes = new ConcurrentHashMap<>();
+    private volatile long syncedBlock = -1;
+    // Whether syncedBlock has been set to just before the first block to replay
+    private boolean replayStartKnown;
+    // Head block when the follower first ran; -1 until then
+    private volatile long startupHead = -1;
+    private final AtomicLong observedBlock = new AtomicLong(-1);
+
+    private final List<CandidateListener> candidateListeners = new CopyOnWriteArrayList<>();
+
+    private ScheduledExecutorService follower;
+
+    /**
+     * Notified on the follower thread as CandidateAdded and CandidateRemoved logs are applied.
+     */
+    public interface CandidateListener {
+        void candidateAdded(BigInteger candidateId, String name, String party);
+
+        void candidateRemoved(BigInteger candidateId);
+    }
+
+    @PostConstruct
+    private void start() {
+        if (fromBlock >= 0) {
+            syncedBlock = fromBlock - 1;
+            replayStartKnown = true;
+        } else if (deployTransaction.isEmpty()) {
+            throw new IllegalStateException("Set web3.events.from-block or CONTRACT_DEPLOY_TX to where the Voting contract"
+                    + " was deployed, so its logs aren't replayed from genesis");
+        }
+        follower = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "contract-log-follower");
+            t.setDaemon(true);
+            return t;
+        });
+        follower.scheduleWithFixedDelay(this::catchUp, 0, pollMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    private void stop() {
+        follower.shutdownNow();
+    }
+
+    /**
+     * Whether the address has voted, as of a block at least minBlock.
+     * Returns null when the cache has not reached minBlock yet.
+     */
+    public Boolean hasVoted(String address, long minBlock) {
+        if (!isSyncedTo(minBlock)) {
+            return null;
+        }
+        return voters.contains(address.toLowerCase());
+    }
+
+    /**
+     * Votes for a candidate, as of a block at least minBlock.
+     * Returns null when the cache has not reached minBlock yet.
+     */
+    public BigInteger getVotes(BigInteger candidateId, long minBlock) {
+        if (!isSyncedTo(minBlock)) {
+            return null;
+        }
+        return votes.getOrDefault(candidateId, BigInteger.ZERO);
+    }
+
+    /**
+     * Notes a block one of our transactions was mined in.
+     */
+    public void observed(long blockNumber) {
+        observedBlock.accumulateAndGet(blockNumber, Math::max);
+    }
+
+    /**
+     * The block the cache has to have applied to reflect everything this
+     * node knows of: the head at startup, or the newest block a receipt of
+     * ours came from. -1 before the follower first ran.
+     */
+    public long getRequiredBlock() {
+        return Math.max(startupHead, observedBlock.get());
+    }
+
+    private boolean isSyncedTo(long minBlock) {
+        long synced = syncedBlock;
+        return startupHead >= 0 && synced >= startupHead && synced >= minBlock && synced >= 0;
+    }
+
+    public void addCandidateListener(CandidateListener listener) {
+        candidateListeners.add(listener);
+    }
+
+    public long getSyncedBlock() {
+        return syncedBlock;
+    }
+
+    // Runs on the follower thread only
+    private void catchUp() {
+        try {
+            if (!replayStartKnown) {
+                syncedBlock = deploymentBlock() - 1;
+                replayStartKnown = true;
+            }
+            long head = web3j.ethBlockNumber().send().getBlockNumber().longValue();
+            boolean replaying = startupHead < 0 || syncedBlock < startupHead;
+            if (startupHead < 0) {
+                startupHead = head;
+                System.out.println("[EVENTS] Replaying contract logs from block " + (syncedBlock + 1) + " to " + head);
+            }
+            while (syncedBlock < head) {
+                long from = syncedBlock + 1;
+                long to = Math.min(head, from + maxRange - 1);
+                EthFilter filter = new EthFilter(
+                        DefaultBlockParameter.valueOf(BigInteger.valueOf(from)),
+                        DefaultBlockParameter.valueOf(BigInteger.valueOf(to)),
+                        contractAddress);
+                filter.addOptionalTopics(VOTED_TOPIC, ADDED_TOPIC, REMOVED_TOPIC);
+                EthLog result = web3j.ethGetLogs(filter).send();
+                if (result.hasError()) {
+                    throw new RuntimeException(result.getError().getMessage());
+                }
+                for (EthLog.LogResult<?> entry : result.getLogs()) {
+                    apply((Log) entry.get());
+                }
+                syncedBlock = to;
+            }
+            if (replaying && syncedBlock >= startupHead) {
+                System.out.println("[EVENTS] Replay reached block " + syncedBlock + ", serving contract state from the cache");
+            }
+        } catch (Exception e) {
+            System.err.println("[EVENTS] Failed to follow contract logs: " + e.getMessage());
+        }
+    }
+
+    private long deploymentBlock() throws IOException {
+        TransactionReceipt receipt = web3j.ethGetTransactionReceipt(deployTransaction).send().getTransactionReceipt()
+                .orElseThrow(() -> new IllegalStateException("Deployment transaction " + deployTransaction + " not found"));
+        System.out.println("[EVENTS] Voting contract was deployed in block " + receipt.getBlockNumber());
+        return receipt.getBlockNumber().longValue();
+    }
+
+    private void apply(Log log) {
+        List<String> topics = log.getTopics();
+        if (topics.isEmpty() || log.isRemoved()) {
+            return;
+        }
+        String topic = topics.get(0);
+        BigInteger candidateId = topics.size() > 1 ? decodeId(topics.get(1)) : null;
+
+        if (VOTED_TOPIC.equals(topic)) {
+            List<?> data = FunctionReturnDecoder.decode(log.getData(), Voting.VOTEDEVENT_EVENT.getNonIndexedParameters());
+            voters.add(((Address) data.get(0)).getValue().toLowerCase());
+            votes.merge(candidateId, BigInteger.ONE, BigInteger::add);
+        } else if (ADDED_TOPIC.equals(topic)) {
+            votes.putIfAbsent(candidateId, BigInteger.ZERO);
+            List<?> data = FunctionReturnDecoder.decode(log.getData(), Voting.CANDIDATEADDED_EVENT.getNonIndexedParameters());
+            String name = (String) ((Type<?>) data.get(0)).getValue();
+            String party = (String) ((Type<?>) data.get(1)).getValue();
+            for (CandidateListener listener : candidateListeners) {
+                listener.candidateAdded(candidateId, name, party);
+            }
+        } else if (REMOVED_TOPIC.equals(topic)) {
+            for (CandidateListener listener : candidateListeners) {
+                listener.candidateRemoved(candidateId);
+            }
+        }
+    }
+
+    private static BigInteger decodeId(String topic) {
+        return ((Uint256) FunctionReturnDecoder.decodeIndexedValue(topic, new TypeReference<Uint256>() {})).getValue();
+    }
+}
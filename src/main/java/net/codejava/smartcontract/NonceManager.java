@@ -0,0 +1,223 @@
+package net.codejava.smartcontract;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+import org.web3j.crypto.Credentials;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.DefaultBlockParameterName;
+
+import net.codejava.model.VoteOutbox;
+
+/**
+ * Local nonce allocator for the application's signing account.
+ *
+ * Every transaction manager that signs with the same key shares this
+ * instance, so nonces are handed out from memory instead of asking the node
+ * on every send. That lets many signed transactions be in flight at once.
+ * Nonces the node definitely rejected are released and reused first. When a
+ * send fails without an answer, the pending count is re-read from the node
+ * instead. A periodic check re-issues nonces whose transactions the node has
+ * dropped, except those of sent votes, which the outbox worker replaces at
+ * the same nonce. For the same reason the counter never restarts below the
+ * nonce of a vote that was signed and may not have reached the node.
+ */
+@Component
+public class NonceManager {
+
+    @Autowired
+    private Web3j web3j;
+
+    @Autowired
+    private Credentials credentials;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Value("${web3.nonce.gap-check-ms:15000}")
+    private long gapCheckMs;
+
+    @Value("${web3.nonce.drop-timeout-ms:60000}")
+    private long dropTimeoutMs;
+
+    // All guarded by this
+    private long nextNonce = -1;
+    private final TreeSet<Long> released = new TreeSet<>();
+    private final Map<Long, Long> sentAt = new HashMap<>();
+
+    private ScheduledExecutorService gapChecker;
+
+    @PostConstruct
+    private void start() {
+        gapChecker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "nonce-gap-checker");
+            t.setDaemon(true);
+            return t;
+        });
+        gapChecker.scheduleWithFixedDelay(() -> {
+            try {
+                fillGaps();
+            } catch (Exception e) {
+                System.err.println("[NONCE] Gap check failed: " + e.getMessage());
+            }
+        }, gapCheckMs, gapCheckMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    private void stop() {
+        gapChecker.shutdownNow();
+    }
+
+    /**
+     * Next nonce to sign with. Released nonces are reused lowest first so the
+     * account never leaves a hole that would stall later transactions.
+     */
+    public synchronized BigInteger acquire() throws IOException {
+        if (nextNonce < 0) {
+            nextNonce = firstFreeNonce();
+        }
+        Long reused = released.pollFirst();
+        return BigInteger.valueOf(reused != null ? reused : nextNonce++);
+    }
+
+    /**
+     * The node accepted a transaction with this nonce.
+     */
+    public synchronized void sent(BigInteger nonce) {
+        sentAt.put(nonce.longValue(), System.currentTimeMillis());
+    }
+
+    /**
+     * The node rejected the transaction with this nonce, so it never made it into the pool.
+     */
+    public synchronized void release(BigInteger nonce) {
+        long n = nonce.longValue();
+        sentAt.remove(n);
+        if (n < nextNonce) {
+            released.add(n);
+        }
+    }
+
+    /**
+     * Sending with this nonce failed without an answer from the node, so the
+     * transaction may or may not be in its pool. Re-reads the pending count,
+     * or has the next acquire do so if the node is unreachable.
+     */
+    public void sendFailed(BigInteger nonce) {
+        try {
+            resync();
+        } catch (IOException e) {
+            synchronized (this) {
+                nextNonce = -1;
+                released.clear();
+            }
+            System.err.println("[NONCE] Could not re-sync after nonce " + nonce + " failed to send: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Re-reads the account's pending nonce after a "nonce too low/high" error.
+     */
+    public synchronized void resync() throws IOException {
+        long pending = firstFreeNonce();
+        System.out.println("[NONCE] Re-synced from node: local=" + nextNonce + " node=" + pending);
+        nextNonce = pending;
+        released.clear();
+        sentAt.keySet().removeIf(n -> n >= pending);
+    }
+
+    // The node's pending count, kept above the nonces of votes that were
+    // signed but may not have reached the node, so they aren't handed out again
+    private long firstFreeNonce() throws IOException {
+        long pending = pendingCount();
+        Query query = new Query(Criteria.where("status").in(VoteOutbox.Status.IN_FLIGHT, VoteOutbox.Status.SUBMITTED)
+                .and("nonce").gte(pending))
+                .with(Sort.by(Sort.Direction.DESC, "nonce"))
+                .limit(1);
+        query.fields().include("nonce");
+        VoteOutbox held = mongoTemplate.findOne(query, VoteOutbox.class);
+        return held == null ? pending : Math.max(pending, held.getNonce() + 1);
+    }
+
+    /**
+     * Finds nonces below the local counter that the node no longer knows about
+     * (dropped or evicted transactions) and makes them available again.
+     */
+    public void fillGaps() throws IOException {
+        long mined = transactionCount(DefaultBlockParameterName.LATEST);
+        long pending = pendingCount();
+        long now = System.currentTimeMillis();
+        List<Long> dropped = new ArrayList<>();
+        synchronized (this) {
+            sentAt.keySet().removeIf(n -> n < mined);
+            if (nextNonce < 0 || pending >= nextNonce) {
+                return;
+            }
+            for (Map.Entry<Long, Long> entry : sentAt.entrySet()) {
+                if (entry.getKey() >= pending && now - entry.getValue() > dropTimeoutMs) {
+                    dropped.add(entry.getKey());
+                }
+            }
+        }
+        if (dropped.isEmpty()) {
+            return;
+        }
+        Set<Long> held = heldBySentVotes(dropped);
+        synchronized (this) {
+            for (Long nonce : dropped) {
+                if (!sentAt.containsKey(nonce)) {
+                    continue;
+                }
+                if (held.contains(nonce)) {
+                    // Handing it to another transaction could leave the vote unminable,
+                    // or get it mined twice if it was only delayed
+                    sentAt.put(nonce, now);
+                } else {
+                    System.out.println("[NONCE] Nonce " + nonce + " was dropped by the node, re-issuing");
+                    released.add(nonce);
+                    sentAt.remove(nonce);
+                }
+            }
+        }
+    }
+
+    // Nonces of votes that were sent and are still waiting for a receipt
+    private Set<Long> heldBySentVotes(List<Long> nonces) {
+        Query query = new Query(Criteria.where("nonce").in(nonces)
+                .and("status").in(VoteOutbox.Status.IN_FLIGHT, VoteOutbox.Status.SUBMITTED));
+        query.fields().include("nonce");
+        Set<Long> held = new HashSet<>();
+        for (VoteOutbox entry : mongoTemplate.find(query, VoteOutbox.class)) {
+            held.add(entry.getNonce());
+        }
+        return held;
+    }
+
+    private long pendingCount() throws IOException {
+        return transactionCount(DefaultBlockParameterName.PENDING);
+    }
+
+    private long transactionCount(DefaultBlockParameterName block) throws IOException {
+        return web3j.ethGetTransactionCount(credentials.getAddress(), block).send().getTransactionCount().longValue();
+    }
+}
@@ -0,0 +1,158 @@
+package net.codejava.smartcontract;
+
+import java.io.IOException;
+import java.math.BigInteger;
+
+import org.web3j.crypto.Credentials;
+import org.web3j.crypto.Hash;
+import org.web3j.crypto.RawTransaction;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.methods.response.EthSendTransaction;
+import org.web3j.tx.RawTransactionManager;
+
+/**
+ * RawTransactionManager that takes nonces from the shared NonceManager
+ * instead of querying the node before each send.
+ */
+public class PipelinedTransactionManager extends RawTransactionManager {
+
+    private static final int MAX_NONCE_RETRIES = 3;
+
+    private final Web3j web3j;
+    private final NonceManager nonceManager;
+
+    public PipelinedTransactionManager(Web3j web3j, Credentials credentials, long chainId,
+            int attempts, long sleepDuration, NonceManager nonceManager) {
+        super(web3j, credentials, chainId, attempts, sleepDuration);
+        this.web3j = web3j;
+        this.nonceManager = nonceManager;
+    }
+
+    @Override
+    protected BigInteger getNonce() throws IOException {
+        return nonceManager.acquire();
+    }
+
+    @Override
+    public EthSendTransaction sendTransaction(BigInteger gasPrice, BigInteger gasLimit, String to, String data,
+            BigInteger value, boolean constructor) throws IOException {
+        for (int attempt = 0;; attempt++) {
+            BigInteger nonce = nonceManager.acquire();
+            RawTransaction rawTransaction = RawTransaction.createTransaction(nonce, gasPrice, gasLimit, to, value, data);
+
+            EthSendTransaction response;
+            try {
+                response = signAndSend(rawTransaction);
+            } catch (IOException | RuntimeException e) {
+                // The node may have taken the transaction before the call
+                // failed, so the nonce is not reused; the count is re-read instead
+                nonceManager.sendFailed(nonce);
+                throw e;
+            }
+
+            if (!response.hasError()) {
+                nonceManager.sent(nonce);
+                return response;
+            }
+
+            String error = String.valueOf(response.getError().getMessage()).toLowerCase();
+            if (error.contains("already known")) {
+                // Same signed transaction is already in the pool
+                nonceManager.sent(nonce);
+                return response;
+            }
+            if ((error.contains("nonce too low") || error.contains("nonce too high")) && attempt < MAX_NONCE_RETRIES) {
+                nonceManager.resync();
+                continue;
+            }
+
+            // Rejected for another reason, the nonce was never consumed
+            nonceManager.release(nonce);
+            return response;
+        }
+    }
+
+    /**
+     * Takes the next nonce and signs a transaction with it without sending
+     * it, so the caller can record the nonce and hash first. Send it with
+     * sendSigned, or give the nonce back with releaseSigned.
+     */
+    public SignedTransaction signTransaction(BigInteger gasPrice, BigInteger gasLimit, String to, String data,
+            BigInteger value) throws IOException {
+        BigInteger nonce = nonceManager.acquire();
+        String signed = sign(RawTransaction.createTransaction(nonce, gasPrice, gasLimit, to, value, data));
+        return new SignedTransaction(nonce, signed, Hash.sha3(signed));
+    }
+
+    /**
+     * Sends a transaction from signTransaction. It is never re-signed at
+     * another nonce: a nonce error means this transaction can't be mined.
+     */
+    public EthSendTransaction sendSigned(SignedTransaction transaction) throws IOException {
+        BigInteger nonce = transaction.getNonce();
+        EthSendTransaction response;
+        try {
+            response = web3j.ethSendRawTransaction(transaction.getSignedHex()).send();
+        } catch (IOException | RuntimeException e) {
+            nonceManager.sendFailed(nonce);
+            throw e;
+        }
+
+        String error = response.hasError() ? String.valueOf(response.getError().getMessage()).toLowerCase() : null;
+        if (error == null || error.contains("already known")) {
+            nonceManager.sent(nonce);
+        } else if (error.contains("nonce too low") || error.contains("nonce too high")) {
+            nonceManager.sendFailed(nonce);
+        } else {
+            nonceManager.release(nonce);
+        }
+        return response;
+    }
+
+    /**
+     * Gives back the nonce of a signed transaction that was never sent.
+     */
+    public void releaseSigned(SignedTransaction transaction) {
+        nonceManager.release(transaction.getNonce());
+    }
+
+    /**
+     * Signs and sends at a nonce one of our transactions already holds,
+     * replacing that transaction if it is still pending. The nonce stays
+     * allocated whatever the node answers.
+     */
+    public EthSendTransaction replaceTransaction(BigInteger nonce, BigInteger gasPrice, BigInteger gasLimit,
+            String to, String data, BigInteger value) throws IOException {
+        EthSendTransaction response = signAndSend(
+                RawTransaction.createTransaction(nonce, gasPrice, gasLimit, to, value, data));
+        if (!response.hasError()) {
+            nonceManager.sent(nonce);
+        }
+        return response;
+    }
+
+    // A signed transaction that hasn't been sent yet, with the nonce and hash it will have
+    public static final class SignedTransaction {
+        private final BigInteger nonce;
+        private final String signedHex;
+        private final String hash;
+
+        public SignedTransaction(BigInteger nonce, String signedHex, String hash) {
+            this.nonce = nonce;
+            this.signedHex = signedHex;
+            this.hash = hash;
+        }
+
+        public BigInteger getNonce() {
+            return nonce;
+        }
+
+        public String getSignedHex() {
+            return signedHex;
+        }
+
+        public String getHash() {
+            return hash;
+        }
+    }
+}
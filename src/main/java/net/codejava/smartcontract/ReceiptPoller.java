@@ -0,0 +1,170 @@
+package net.codejava.smartcontract;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeoutException;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.BatchRequest;
+import org.web3j.protocol.core.BatchResponse;
+import org.web3j.protocol.core.Request;
+import org.web3j.protocol.core.Response;
+import org.web3j.protocol.core.methods.response.EthGetTransactionReceipt;
+import org.web3j.protocol.core.methods.response.TransactionReceipt;
+
+/**
+ * Tracks submitted transactions until they are mined.
+ *
+ * Callers register a transaction hash and get a future back. One background
+ * loop looks up every pending hash with JSON-RPC batch requests. It polls
+ * quickly while receipts are arriving and backs off while nothing changes,
+ * so thousands of pending votes cost one thread and a few requests per tick.
+ */
+@Component
+public class ReceiptPoller {
+
+    @Autowired
+    private Web3j web3j;
+
+    @Autowired
+    private ContractStateCache stateCache;
+
+    @Value("${web3.receipts.min-interval-ms:500}")
+    private long minIntervalMs;
+
+    @Value("${web3.receipts.max-interval-ms:8000}")
+    private long maxIntervalMs;
+
+    @Value("${web3.receipts.batch-size:100}")
+    private int batchSize;
+
+    @Value("${web3.receipts.timeout-ms:600000}")
+    private long timeoutMs;
+
+    private final Map<String, Pending> pending = new ConcurrentHashMap<>();
+    private final Object wakeup = new Object();
+    private volatile boolean running;
+    private Thread poller;
+
+    @PostConstruct
+    private void start() {
+        running = true;
+        poller = new Thread(this::pollLoop, "receipt-poller");
+        poller.setDaemon(true);
+        poller.start();
+    }
+
+    @PreDestroy
+    private void stop() {
+        running = false;
+        poller.interrupt();
+    }
+
+    /**
+     * Completes with the receipt once the transaction is mined, or
+     * exceptionally with a TimeoutException if it never shows up.
+     */
+    public CompletableFuture<TransactionReceipt> track(String txHash) {
+        Pending entry = pending.computeIfAbsent(txHash, h -> new Pending(System.currentTimeMillis() + timeoutMs));
+        synchronized (wakeup) {
+            wakeup.notifyAll();
+        }
+        return entry.future;
+    }
+
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    private void pollLoop() {
+        long interval = minIntervalMs;
+        while (running) {
+            try {
+                synchronized (wakeup) {
+                    if (pending.isEmpty()) {
+                        wakeup.wait();
+                        interval = minIntervalMs;
+                    } else {
+                        wakeup.wait(interval);
+                    }
+                }
+                int completed = pollOnce();
+                interval = completed > 0 ? minIntervalMs : Math.min(maxIntervalMs, interval * 2);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                System.err.println("[RECEIPTS] Poll failed: " + e.getMessage());
+                interval = Math.min(maxIntervalMs, interval * 2);
+            }
+        }
+    }
+
+    private int pollOnce() throws Exception {
+        expireOverdue();
+        List<String> hashes = new ArrayList<>(pending.keySet());
+        int completed = 0;
+        for (int from = 0; from < hashes.size(); from += batchSize) {
+            List<String> chunk = hashes.subList(from, Math.min(hashes.size(), from + batchSize));
+            BatchRequest batch = web3j.newBatch();
+            Map<Long, String> hashById = new HashMap<>();
+            for (String hash : chunk) {
+                Request<?, EthGetTransactionReceipt> request = web3j.ethGetTransactionReceipt(hash);
+                hashById.put(request.getId(), hash);
+                batch.add(request);
+            }
+            BatchResponse response = batch.send();
+            for (Response<?> r : response.getResponses()) {
+                String hash = hashById.get(r.getId());
+                if (hash == null || r.hasError() || !(r instanceof EthGetTransactionReceipt)) {
+                    continue;
+                }
+                TransactionReceipt receipt = ((EthGetTransactionReceipt) r).getTransactionReceipt().orElse(null);
+                if (receipt != null) {
+                    Pending entry = pending.remove(hash);
+                    if (receipt.getBlockNumberRaw() != null) {
+                        // The cache must reach this block before it answers for our own votes
+                        stateCache.observed(receipt.getBlockNumber().longValue());
+                    }
+                    if (entry != null) {
+                        entry.future.complete(receipt);
+                        completed++;
+                    }
+                }
+            }
+        }
+        return completed;
+    }
+
+    private void expireOverdue() {
+        long now = System.currentTimeMillis();
+        for (Iterator<Map.Entry<String, Pending>> it = pending.entrySet().iterator(); it.hasNext();) {
+            Map.Entry<String, Pending> entry = it.next();
+            if (entry.getValue().deadline < now) {
+                it.remove();
+                entry.getValue().future.completeExceptionally(
+                        new TimeoutException("No receipt for transaction " + entry.getKey() + " within " + timeoutMs + " ms"));
+            }
+        }
+    }
+
+    private static final class Pending {
+        private final long deadline;
+        private final CompletableFuture<TransactionReceipt> future = new CompletableFuture<>();
+
+        private Pending(long deadline) {
+            this.deadline = deadline;
+        }
+    }
+}
@@ -3,6 +3,8 @@ package net.codejava.smartcontract;
 import org.springframework.stereotype.Component;
 import net.codejava.repository.VoteRepo;
 import net.codejava.model.Votedata;
+import net.codejava.service.ChainAuditService;
+import net.codejava.service.ResultsProjection;
 import org.springframework.beans.factory.annotation.Autowired;
 
 @Component
@@ -10,9 +12,16 @@ public class VoteSmartContract {
     
     @Autowired
     private VoteRepo voteRepo;
+
+    @Autowired
+    private ChainAuditService chainAuditService;
+
+    @Autowired
+    private ResultsProjection resultsProjection;
     
+    // Verifies the hash chain from the last audit checkpoint onwards
     public boolean checkTable() {
-        return voteRepo.count() == voteRepo.findcount();
+        return chainAuditService.audit(false).isIntact();
     }
     
     public void correctTableValues() {
@@ -21,10 +30,9 @@ public class VoteSmartContract {
         // voteRepo.copyData();
     }
     
-    public String voteCount() {
-        // This is a simplified implementation
-        // In a real blockchain system, this would query the blockchain
-        // For now, we'll return a default value
-        return "BJP"; // Default winning party
+    // Party leading the live results of one election (null for votes without
+    // one), or null before its first vote
+    public String voteCount(String electionId) {
+        return resultsProjection.getSnapshot(electionId).getLeaderParty();
     }
 }
@@ -1,6 +1,7 @@
 package net.codejava.smartcontract;
 
 import java.math.BigInteger;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
@@ -8,8 +9,11 @@ import org.web3j.abi.TypeReference;
 import org.web3j.abi.datatypes.Address;
 import org.web3j.abi.datatypes.Bool;
 import org.web3j.abi.datatypes.DynamicArray;
+import org.web3j.abi.datatypes.Event;
 import org.web3j.abi.datatypes.Function;
 import org.web3j.abi.datatypes.Type;
+import org.web3j.abi.datatypes.Utf8String;
+import org.web3j.abi.datatypes.generated.Bytes32;
 import org.web3j.abi.datatypes.generated.Uint256;
 import org.web3j.crypto.Credentials;
 import org.web3j.protocol.Web3j;
@@ -19,6 +23,15 @@ import org.web3j.tx.TransactionManager;
 import org.web3j.tx.gas.ContractGasProvider;
 
 public class Voting extends Contract {
+    public static final Event CANDIDATEADDED_EVENT = new Event("CandidateAdded",
+        Arrays.<TypeReference<?>>asList(new TypeReference<Uint256>(true) {}, new TypeReference<Utf8String>() {}, new TypeReference<Utf8String>() {}));
+
+    public static final Event CANDIDATEREMOVED_EVENT = new Event("CandidateRemoved",
+        Arrays.<TypeReference<?>>asList(new TypeReference<Uint256>(true) {}));
+
+    public static final Event VOTEDEVENT_EVENT = new Event("VotedEvent",
+        Arrays.<TypeReference<?>>asList(new TypeReference<Uint256>(true) {}, new TypeReference<Address>() {}));
+
     protected Voting(String contractAddress, Web3j web3j, Credentials credentials, ContractGasProvider contractGasProvider) {
         super("", contractAddress, web3j, credentials, contractGasProvider);
     }
@@ -43,6 +56,17 @@ public class Voting extends Contract {
         return executeRemoteCallTransaction(function);
     }
     
+    public RemoteCall<org.web3j.protocol.core.methods.response.TransactionReceipt> anchorBatch(byte[] merkleRoot, BigInteger voteCount) {
+        // Anchor the Merkle root of an off-chain vote batch
+        Function function = new Function(
+            "anchorBatch",
+            Arrays.asList(new Bytes32(merkleRoot), new Uint256(voteCount)),
+            Collections.emptyList()
+        );
+
+        return executeRemoteCallTransaction(function);
+    }
+    
     @SuppressWarnings("unchecked")
     public RemoteCall<List<BigInteger>> getActiveCandidateIds() {
         // Call getActiveCandidateIds function on the smart contract
@@ -61,6 +85,47 @@ public class Voting extends Contract {
         });
     }
     
+    public RemoteCall<List<Type<?>>> getCandidate(BigInteger candidateId) {
+        // Call getCandidate function on the smart contract
+        Function function = new Function(
+            "getCandidate",
+            Arrays.asList(new Uint256(candidateId)),
+            Arrays.<TypeReference<?>>asList(new TypeReference<Uint256>() {}, new TypeReference<Utf8String>() {},
+                    new TypeReference<Utf8String>() {}, new TypeReference<Utf8String>() {},
+                    new TypeReference<Uint256>() {}, new TypeReference<Bool>() {})
+        );
+
+        return new RemoteCall<>(() -> {
+            List<Type<?>> values = new ArrayList<>();
+            for (Object value : executeCallMultipleValueReturn(function)) {
+                values.add((Type<?>) value);
+            }
+            return values;
+        });
+    }
+    
+    public RemoteCall<BigInteger> getVotes(BigInteger candidateId) {
+        // Call getVotes function on the smart contract
+        Function function = new Function(
+            "getVotes",
+            Arrays.asList(new Uint256(candidateId)),
+            Arrays.asList(new TypeReference<Uint256>() {})
+        );
+
+        return executeRemoteCallSingleValueReturn(function, BigInteger.class);
+    }
+    
+    public RemoteCall<BigInteger> anchoredBatches(byte[] merkleRoot) {
+        // Call anchoredBatches mapping on the smart contract, 0 if the root was never anchored
+        Function function = new Function(
+            "anchoredBatches",
+            Arrays.asList(new Bytes32(merkleRoot)),
+            Arrays.asList(new TypeReference<Uint256>() {})
+        );
+
+        return executeRemoteCallSingleValueReturn(function, BigInteger.class);
+    }
+
     public RemoteCall<Boolean> voters(String address) {
         // Call voters mapping on the smart contract
         Function function = new Function(
@@ -3,13 +3,19 @@ package net.codejava.smartcontract;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.web3j.protocol.Web3j;
-import org.web3j.protocol.http.HttpService;
 import org.web3j.crypto.Credentials;
 import org.web3j.tx.gas.DefaultGasProvider;
-import org.web3j.tx.RawTransactionManager;
 import org.web3j.tx.TransactionManager;
 import org.web3j.protocol.core.methods.response.TransactionReceipt;
+import org.web3j.protocol.core.methods.response.EthSendTransaction;
+import org.web3j.abi.FunctionEncoder;
+import org.web3j.abi.datatypes.Function;
+import org.web3j.abi.datatypes.Type;
+import org.web3j.abi.datatypes.generated.Bytes32;
+import org.web3j.abi.datatypes.generated.Uint256;
 import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 @Service
@@ -19,35 +25,190 @@ public class VotingContractService {
     private final Voting votingContract;
     private final String contractAddress;
     private final DefaultGasProvider gasProvider;
+    private final TransactionManager transactionManager;
+    private final ReceiptPoller receiptPoller;
+    private final ContractStateCache stateCache;
 
     public VotingContractService(
-            @Value("${AVALANCHE_RPC_URL}") String rpcUrl,
-            @Value("${TEST_PRIVATE_KEY}") String privateKey,
+            Web3j web3j,
+            Credentials credentials,
+            TransactionManager transactionManager,
+            ReceiptPoller receiptPoller,
+            ContractStateCache stateCache,
             @Value("${CONTRACT_ADDRESS}") String contractAddress) {
-        this.web3j = Web3j.build(new HttpService(rpcUrl));
-        this.credentials = Credentials.create(privateKey);
+        this.stateCache = stateCache;
+        this.web3j = web3j;
+        this.transactionManager = transactionManager;
+        this.receiptPoller = receiptPoller;
+        this.credentials = credentials;
         this.contractAddress = contractAddress;
         this.gasProvider = new DefaultGasProvider();
-        // Use chainId 43113 for Avalanche Fuji testnet with EIP-155
-        TransactionManager txManager = new RawTransactionManager(
-            web3j, 
-            credentials,
-            43113, // Avalanche Fuji testnet chainId
-            5,     // Attempt to retry failed transactions 5 times
-            3000   // 3 second delay between retries
-        );
-        this.votingContract = Voting.load(contractAddress, web3j, txManager, gasProvider);
+        // Shared transaction manager, nonces come from NonceManager rather than the node
+        this.votingContract = Voting.load(contractAddress, web3j, transactionManager, gasProvider);
     }
 
     public TransactionReceipt vote(BigInteger candidateId) throws Exception {
-        return votingContract.vote(candidateId).send();
+        return receiptPoller.track(submitVote(candidateId)).get();
+    }
+
+    /**
+     * Sends a vote transaction and returns its hash without waiting for it to be mined.
+     * Use ReceiptPoller.track to follow it.
+     */
+    public String submitVote(BigInteger candidateId) throws Exception {
+        return submit(new Function(
+            "vote",
+            Arrays.asList(new Uint256(candidateId)),
+            Collections.emptyList()
+        ));
+    }
+
+    /**
+     * Signs a vote transaction at the next nonce without sending it, so the
+     * caller can record its nonce and hash before it leaves the process.
+     */
+    public PipelinedTransactionManager.SignedTransaction signVote(BigInteger candidateId) throws Exception {
+        Function function = new Function(
+            "vote",
+            Arrays.asList(new Uint256(candidateId)),
+            Collections.emptyList()
+        );
+        return pipelined().signTransaction(
+            gasProvider.getGasPrice(function.getName()),
+            gasProvider.getGasLimit(function.getName()),
+            contractAddress,
+            FunctionEncoder.encode(function),
+            BigInteger.ZERO
+        );
+    }
+
+    /**
+     * Sends a transaction from signVote and returns its hash. Throws
+     * IOException if the node didn't answer, in which case the transaction
+     * may or may not have reached it.
+     */
+    public String sendSigned(PipelinedTransactionManager.SignedTransaction transaction) throws Exception {
+        EthSendTransaction response = pipelined().sendSigned(transaction);
+        if (response.hasError()) {
+            throw new RuntimeException("Error processing transaction request: " + response.getError().getMessage());
+        }
+        return transaction.getHash();
+    }
+
+    public void releaseSigned(PipelinedTransactionManager.SignedTransaction transaction) {
+        pipelined().releaseSigned(transaction);
+    }
+
+    /**
+     * Nonce of a transaction the node knows about, pending or mined, or null
+     * if the node has never seen it or has dropped it.
+     */
+    public BigInteger transactionNonce(String txHash) throws Exception {
+        return web3j.ethGetTransactionByHash(txHash).send().getTransaction()
+            .map(tx -> tx.getNonce())
+            .orElse(null);
+    }
+
+    /**
+     * Sends the vote again at the nonce of an earlier attempt, with the gas
+     * price raised by an eighth per replacement so the node accepts it in
+     * place of the old one. Only one of the two can ever be mined.
+     */
+    public String replaceVote(BigInteger candidateId, BigInteger nonce, int replacement) throws Exception {
+        Function function = new Function(
+            "vote",
+            Arrays.asList(new Uint256(candidateId)),
+            Collections.emptyList()
+        );
+        BigInteger gasPrice = gasProvider.getGasPrice(function.getName());
+        for (int i = 0; i < Math.min(replacement, 20); i++) {
+            gasPrice = gasPrice.add(gasPrice.shiftRight(3));
+        }
+        EthSendTransaction response = pipelined().replaceTransaction(
+            nonce,
+            gasPrice,
+            gasProvider.getGasLimit(function.getName()),
+            contractAddress,
+            FunctionEncoder.encode(function),
+            BigInteger.ZERO
+        );
+        if (response.hasError()) {
+            throw new RuntimeException("Error processing transaction request: " + response.getError().getMessage());
+        }
+        return response.getTransactionHash();
+    }
+
+    /**
+     * Sends an anchorBatch transaction and returns its hash without waiting for it to be mined.
+     */
+    public String submitAnchorBatch(byte[] merkleRoot, int voteCount) throws Exception {
+        return submit(new Function(
+            "anchorBatch",
+            Arrays.asList(new Bytes32(merkleRoot), new Uint256(BigInteger.valueOf(voteCount))),
+            Collections.emptyList()
+        ));
+    }
+
+    /**
+     * Vote count the contract holds for an anchored Merkle root, zero if it was never anchored.
+     */
+    public BigInteger getAnchoredVoteCount(byte[] merkleRoot) throws Exception {
+        return votingContract.anchoredBatches(merkleRoot).send();
+    }
+
+    private PipelinedTransactionManager pipelined() {
+        if (!(transactionManager instanceof PipelinedTransactionManager)) {
+            throw new IllegalStateException("Transactions can't be signed ahead by " + transactionManager.getClass().getSimpleName());
+        }
+        return (PipelinedTransactionManager) transactionManager;
+    }
+
+    private String submit(Function function) throws Exception {
+        EthSendTransaction response = transactionManager.sendTransaction(
+            gasProvider.getGasPrice(function.getName()),
+            gasProvider.getGasLimit(function.getName()),
+            contractAddress,
+            FunctionEncoder.encode(function),
+            BigInteger.ZERO
+        );
+        if (response.hasError()) {
+            throw new RuntimeException("Error processing transaction request: " + response.getError().getMessage());
+        }
+        return response.getTransactionHash();
     }
 
-    public List getActiveCandidateIds() throws Exception {
+    public List<BigInteger> getActiveCandidateIds() throws Exception {
         return votingContract.getActiveCandidateIds().send();
     }
 
+    /**
+     * Returns the candidate's fields in contract order: id, name, party, imageHash, voteCount, isActive.
+     */
+    public List<Type<?>> getCandidate(BigInteger candidateId) throws Exception {
+        return votingContract.getCandidate(candidateId).send();
+    }
+
     public Boolean hasVoted(String address) throws Exception {
+        return hasVoted(address, stateCache.getRequiredBlock());
+    }
+
+    /**
+     * Answered from the event-driven cache once it has reached minBlock,
+     * otherwise with an eth_call to the voters mapping.
+     */
+    public Boolean hasVoted(String address, long minBlock) throws Exception {
+        Boolean cached = stateCache.hasVoted(address, minBlock);
+        if (cached != null) {
+            return cached;
+        }
         return votingContract.voters(address).send();
     }
+
+    public BigInteger getVotes(BigInteger candidateId, long minBlock) throws Exception {
+        BigInteger cached = stateCache.getVotes(candidateId, minBlock);
+        if (cached != null) {
+            return cached;
+        }
+        return votingContract.getVotes(candidateId).send();
+    }
 }
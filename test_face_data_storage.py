@@ -83,8 +83,14 @@ def test_retrieve_face_data():
                 print(f"   ID: {face_data.get('id')}")
                 print(f"   Username: {face_data.get('username')}")
                 print(f"   Image Type: {face_data.get('imageType')}")
-                print(f"   Has Encoding: {'Yes' if face_data.get('faceEncoding') else 'No'}")
-                print(f"   Image Size: {len(face_data.get('faceImageBase64', ''))} characters")
+                print(f"   Has Encoding: {'Yes' if face_data.get('hasEncoding') else 'No'}")
+                
+                # Listings carry no image, it is fetched per record
+                image = requests.get(f"{SPRING_BOOT_URL}/{face_data.get('id')}/image")
+                if image.status_code == 200:
+                    print(f"   Image Size: {len(image.content)} bytes")
+                else:
+                    print(f"   ⚠️  No image data found")
             
             return True
         else:
@@ -101,15 +107,17 @@ def test_get_all_face_data():
     print("\n📋 Testing get all face data...")
     
     try:
-        response = requests.get(f"{SPRING_BOOT_URL}/all")
+        response = requests.get(f"{SPRING_BOOT_URL}/all", stream=True)
         
         if response.status_code == 200:
-            data = response.json()
-            print(f"✅ Found {len(data)} total face record(s) in database")
-            
-            for i, face_data in enumerate(data, 1):
+            # NDJSON: one record per line, read as it streams in
+            count = 0
+            for i, line in enumerate((l for l in response.iter_lines() if l), 1):
+                face_data = json.loads(line)
+                count = i
                 print(f"   {i}. {face_data.get('username')} - {face_data.get('imageType')}")
             
+            print(f"✅ Found {count} total face record(s) in database")
             return True
         else:
             print(f"❌ Failed to get all face data: {response.status_code}")
@@ -37,14 +37,10 @@ def view_user_face_data(username):
                 print(f"   Username: {face_data.get('username', 'N/A')}")
                 print(f"   Image Type: {face_data.get('imageType', 'N/A')}")
                 print(f"   Timestamp: {datetime.fromtimestamp(face_data.get('timestamp', 0)/1000)}")
-                print(f"   Has Encoding: {'Yes' if face_data.get('faceEncoding') else 'No'}")
+                print(f"   Has Encoding: {'Yes' if face_data.get('hasEncoding') else 'No'}")
                 
-                # Save image to file
-                image_base64 = face_data.get('faceImageBase64', '')
-                if image_base64:
-                    save_base64_image(image_base64, f"{username}_face_{i}.jpg")
-                else:
-                    print("   ⚠️  No image data found")
+                # Listings carry no image, it is fetched per record
+                save_image_by_id(face_data.get('id'), f"{username}_face_{i}.jpg")
                     
         else:
             print(f"❌ No face data found for user: {username}")
@@ -57,26 +53,24 @@ def view_all_face_data():
     print("🔍 Loading all face data...")
     
     try:
-        response = requests.get(f"{SPRING_BOOT_URL}/all")
+        response = requests.get(f"{SPRING_BOOT_URL}/all", stream=True)
         
         if response.status_code == 200:
-            face_data_list = response.json()
-            print(f"✅ Found {len(face_data_list)} total face record(s)")
-            
-            for i, face_data in enumerate(face_data_list, 1):
+            # NDJSON: one record per line, read as it streams in
+            count = 0
+            for i, line in enumerate((l for l in response.iter_lines() if l), 1):
+                face_data = json.loads(line)
+                count = i
                 print(f"\n📸 Face Record #{i}:")
                 print(f"   ID: {face_data.get('id', 'N/A')}")
                 print(f"   Username: {face_data.get('username', 'N/A')}")
                 print(f"   Image Type: {face_data.get('imageType', 'N/A')}")
                 print(f"   Timestamp: {datetime.fromtimestamp(face_data.get('timestamp', 0)/1000)}")
-                print(f"   Has Encoding: {'Yes' if face_data.get('faceEncoding') else 'No'}")
+                print(f"   Has Encoding: {'Yes' if face_data.get('hasEncoding') else 'No'}")
                 
-                # Save image to file
-                image_base64 = face_data.get('faceImageBase64', '')
-                if image_base64:
-                    save_base64_image(image_base64, f"face_{i}_{face_data.get('username', 'unknown')}.jpg")
-                else:
-                    print("   ⚠️  No image data found")
+                save_image_by_id(face_data.get('id'), f"face_{i}_{face_data.get('username', 'unknown')}.jpg")
+            
+            print(f"\n✅ Found {count} total face record(s)")
                     
         else:
             print("❌ Failed to load face data")
@@ -84,6 +78,25 @@ def view_all_face_data():
     except Exception as e:
         print(f"❌ Error: {str(e)}")
 
+def save_image_by_id(face_id, filename):
+    """Download one record's image and save it to file"""
+    try:
+        response = requests.get(f"{SPRING_BOOT_URL}/{face_id}/image")
+        if response.status_code != 200:
+            print("   ⚠️  No image data found")
+            return
+        
+        os.makedirs('mongodb_images', exist_ok=True)
+        
+        filepath = os.path.join('mongodb_images', filename)
+        with open(filepath, 'wb') as f:
+            f.write(response.content)
+        
+        print(f"   💾 Image saved as: {filepath}")
+        
+    except Exception as e:
+        print(f"   ❌ Error saving image: {str(e)}")
+
 def save_base64_image(base64_string, filename):
     """Save base64 image to file"""
     try: